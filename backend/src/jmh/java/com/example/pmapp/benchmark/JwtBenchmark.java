@@ -0,0 +1,49 @@
+package com.example.pmapp.benchmark;
+
+import com.example.pmapp.model.Role;
+import com.example.pmapp.security.AuthenticatedUser;
+import com.example.pmapp.service.JwtService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issue and verification, the work done on every login and (without
+ * the verified-token cache) on every authenticated request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+    // Same default secret as application.properties
+    private static final String SECRET = "VGhpc0lzQVRlc3RTZWNyZXRLZXlGb3JQbHVzaU1ibmtOaWppYXMxMjM=";
+
+    private JwtService jwtService;
+    private AuthenticatedUser user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService(SECRET, 3_600_000);
+        user = new AuthenticatedUser(42, "benchmark-user", Role.USER);
+        token = jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return jwtService.extractUsername(token);
+    }
+
+    @Benchmark
+    public boolean isTokenValid() {
+        return jwtService.isTokenValid(token, user);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.pmapp.benchmark;
+
+import com.example.pmapp.MaterialMapper;
+import com.example.pmapp.dto.MaterialResponse;
+import com.example.pmapp.dto.ProjectResponse;
+import com.example.pmapp.model.Material;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity/row to DTO conversion.  ProjectService.toResponse is private; it
+ * delegates all of its work, including the ISO date formatting, to the
+ * LocalDateTime constructor of ProjectResponse measured here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+    private Material material;
+    private LocalDateTime createdAt;
+    private LocalDateTime estimatedEnd;
+
+    @Setup
+    public void setUp() {
+        material = new Material();
+        material.setId(7L);
+        material.setName("Galvanized steel beam 200mm");
+        material.setMarketId("MKT-000007");
+        material.setSeller("Acme Supplies");
+        material.setMaterialPicture("https://example.com/pictures/7.png");
+        createdAt = LocalDateTime.of(2024, 3, 1, 9, 30, 15);
+        estimatedEnd = createdAt.plusMonths(3);
+    }
+
+    @Benchmark
+    public MaterialResponse materialToResponse() {
+        return MaterialMapper.toResponse(material);
+    }
+
+    @Benchmark
+    public ProjectResponse projectToResponse() {
+        return new ProjectResponse(1, "benchmark-user", "Warehouse extension", "Second floor and loading dock",
+                createdAt, estimatedEnd, null);
+    }
+}
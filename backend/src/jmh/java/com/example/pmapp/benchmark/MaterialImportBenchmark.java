@@ -0,0 +1,108 @@
+package com.example.pmapp.benchmark;
+
+import com.example.pmapp.ProjectManagementApplication;
+import com.example.pmapp.dto.MaterialImportResult;
+import com.example.pmapp.dto.MaterialRequest;
+import com.example.pmapp.model.Role;
+import com.example.pmapp.security.AuthenticatedUser;
+import com.example.pmapp.service.MaterialImportService;
+import com.example.pmapp.service.MaterialService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a supplier catalog of {@code rows} new materials: the COPY
+ * import behind POST /api/materials/import against one
+ * {@code MaterialService.createMaterial} call per row, the only way to
+ * add materials before.  Both run through the Spring services on an
+ * embedded PostgreSQL server.  Each invocation loads rows with fresh
+ * market ids, so throughput is {@code rows} divided by the reported
+ * time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MaterialImportBenchmark {
+    private static final AuthenticatedUser ADMIN = new AuthenticatedUser(1, "benchmark-admin", Role.ADMIN);
+
+    @Param({"1000", "10000"})
+    public int rows;
+
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+    private MaterialImportService importService;
+    private MaterialService materialService;
+    private int batch;
+    private String csv;
+    private List<MaterialRequest> requests;
+
+    @Setup(Level.Trial)
+    public void startApplication() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+        SpringApplication app = new SpringApplication(ProjectManagementApplication.class);
+        Map<String, Object> props = new HashMap<>();
+        props.put("server.port", "0");
+        props.put("spring.sql.init.continue-on-error", "true");
+        props.put("logging.level.root", "WARN");
+        app.setDefaultProperties(props);
+        // Above application.properties, which points at a local server
+        Map<String, Object> database = Map.of(
+                "spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"),
+                "spring.datasource.username", "postgres",
+                "spring.datasource.password", "postgres");
+        app.addInitializers(ctx -> ctx.getEnvironment().getPropertySources()
+                .addFirst(new MapPropertySource("embeddedPostgres", database)));
+        context = app.run();
+        importService = context.getBean(MaterialImportService.class);
+        materialService = context.getBean(MaterialService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() throws Exception {
+        context.close();
+        postgres.close();
+    }
+
+    /** A new catalog for every invocation, so both paths always insert. */
+    @Setup(Level.Invocation)
+    public void newCatalog() {
+        String prefix = "B" + batch++ + "-";
+        StringBuilder file = new StringBuilder("name,marketId,seller,pictureUrl\n");
+        requests = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            String name = "Benchmark material " + prefix + i;
+            String marketId = prefix + i;
+            String seller = "Seller " + (i % 50);
+            String picture = "https://example.com/pictures/" + i + ".png";
+            file.append(name).append(',').append(marketId).append(',').append(seller).append(',').append(picture).append('\n');
+            requests.add(new MaterialRequest(name, marketId, seller, picture));
+        }
+        csv = file.toString();
+    }
+
+    @Benchmark
+    public MaterialImportResult copyImport() throws Exception {
+        return importService.importCsv(ADMIN, new StringReader(csv));
+    }
+
+    @Benchmark
+    public int perRowCreate() {
+        for (MaterialRequest request : requests) {
+            materialService.createMaterial(ADMIN, request);
+        }
+        return requests.size();
+    }
+}
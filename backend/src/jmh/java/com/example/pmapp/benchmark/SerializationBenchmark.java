@@ -0,0 +1,54 @@
+package com.example.pmapp.benchmark;
+
+import com.example.pmapp.dto.MaterialResponse;
+import com.example.pmapp.dto.ProjectResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the list responses returned by the project
+ * listing and the material catalog, at small, typical and bulk sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<ProjectResponse> projects;
+    private List<MaterialResponse> materials;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 8, 0);
+        projects = new ArrayList<>(size);
+        materials = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            LocalDateTime createdAt = base.plusMinutes(i);
+            projects.add(new ProjectResponse(i, "user" + (i % 100), "Project " + i,
+                    "Description of project " + i, createdAt, createdAt.plusDays(30), null));
+            materials.add(new MaterialResponse((long) i, "Material " + i, "MKT-" + i,
+                    "https://example.com/pictures/" + i + ".png", "Seller " + (i % 50)));
+        }
+    }
+
+    @Benchmark
+    public byte[] projects() throws Exception {
+        return objectMapper.writeValueAsBytes(projects);
+    }
+
+    @Benchmark
+    public byte[] materials() throws Exception {
+        return objectMapper.writeValueAsBytes(materials);
+    }
+}
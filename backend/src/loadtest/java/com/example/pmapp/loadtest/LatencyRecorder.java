@@ -0,0 +1,86 @@
+package com.example.pmapp.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latency samples of one client thread, per endpoint.  Every client owns
+ * its recorder, so recording needs no synchronization; recorders are
+ * merged once the run is over.
+ */
+final class LatencyRecorder {
+    private final Map<String, Samples> samples = new LinkedHashMap<>();
+
+    /** One response, or status 0 if the request itself failed. */
+    void record(String endpoint, long nanos, int status) {
+        samples.computeIfAbsent(endpoint, k -> new Samples()).add(nanos, status);
+    }
+
+    void mergeInto(LatencyRecorder total) {
+        samples.forEach((endpoint, s) -> total.samples.computeIfAbsent(endpoint, k -> new Samples()).addAll(s));
+    }
+
+    Map<String, Samples> byEndpoint() {
+        return samples;
+    }
+
+    static final class Samples {
+        private long[] nanos = new long[1024];
+        private int size;
+        private long errors;
+        private long shed;
+        private boolean sorted;
+
+        void add(long value, int status) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = value;
+            sorted = false;
+            if (status == 0 || status >= 400) {
+                errors++;
+            }
+            if (status == 429 || status == 503) {
+                shed++;
+            }
+        }
+
+        void addAll(Samples other) {
+            if (size + other.size > nanos.length) {
+                nanos = Arrays.copyOf(nanos, Math.max(nanos.length * 2, size + other.size));
+            }
+            System.arraycopy(other.nanos, 0, nanos, size, other.size);
+            size += other.size;
+            sorted = false;
+            errors += other.errors;
+            shed += other.shed;
+        }
+
+        int count() {
+            return size;
+        }
+
+        long errors() {
+            return errors;
+        }
+
+        /** Errors that were the server turning the request away (429 or 503), a subset of {@link #errors()}. */
+        long shed() {
+            return shed;
+        }
+
+        /** Percentile in milliseconds; sorts the samples on first use. */
+        double percentileMillis(double percentile) {
+            if (size == 0) {
+                return 0;
+            }
+            if (!sorted) {
+                Arrays.sort(nanos, 0, size);
+                sorted = true;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+            return nanos[Math.max(0, Math.min(index, size - 1))] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.example.pmapp.loadtest;
+
+import com.example.pmapp.ProjectManagementApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load test.  Starts an embedded PostgreSQL server and the
+ * full application on a random port, seeds users, materials, projects and
+ * project materials, and then lets many concurrent clients run a mix of
+ * login, project listing, material upserts and catalog reads.  Clients
+ * that are turned away with 429 or 503 wait for the Retry-After delay.
+ * Prints throughput, p50/p95/p99 latency and errors per endpoint, with
+ * the turned-away requests also counted as shed, and writes the same
+ * numbers as JSON.
+ *
+ * With --scenario=search the clients only run full-text searches instead:
+ * half of them as an admin over all projects, half over their own, each
+ * for a term found in every project, in one in twenty, in one in a
+ * thousand, or in a single project.  Project materials are not seeded
+ * unless asked for.  A million projects:
+ *
+ *   mvn -P loadtest verify -Dloadtest.args="--scenario=search --users=1000 --projectsPerUser=1000 --clients=1"
+ *
+ * Harness options (all optional, as --name=value):
+ * scenario (mixed or search), users, projectsPerUser, materials,
+ * materialsPerProject, clients, warmupSeconds, durationSeconds, out.  Every other argument is passed to
+ * Spring and wins over the harness settings; per-user rate limiting, for
+ * example, is off unless --app.rate-limit.enabled=true is given.  Use
+ * --spring.threads.virtual.enabled=true to compare modes:
+ *
+ *   mvn -P loadtest verify -Dloadtest.args="--clients=2000 --spring.threads.virtual.enabled=true"
+ */
+public final class LoadTest {
+    private static final String PASSWORD = "loadtest-password";
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    // Request mix in percent: login, list projects, upsert material, read catalog
+    private static final int LOGIN_WEIGHT = 5;
+    private static final int LIST_WEIGHT = 40;
+    private static final int UPSERT_WEIGHT = 25;
+
+    // Search scenario: one of these words in every twentieth project, plus "lot<n>" in every thousandth
+    private static final List<String> COMMON_TERMS = List.of("warehouse", "office", "bridge", "school",
+            "hospital", "factory", "tower", "station", "garage", "library", "stadium", "hotel", "museum",
+            "clinic", "depot", "terminal", "market", "plant", "harbor", "campus");
+    private static final int LOTS = 1_000;
+    private static final String SEARCH_ADMIN = "searchadmin";
+
+    private final Map<String, String> options;
+    private final boolean searchScenario;
+    private final int users;
+    private final int projectsPerUser;
+    private final int materials;
+    private final int materialsPerProject;
+    private final int clients;
+
+    private String baseUrl;
+    private HttpClient http;
+    private Map<Integer, int[]> projectsByUser;
+    private long firstMaterialId;
+    private volatile boolean measuring;
+    private volatile boolean stopped;
+
+    private LoadTest(Map<String, String> options) {
+        this.options = options;
+        String scenario = options.getOrDefault("scenario", "mixed");
+        if (!scenario.equals("mixed") && !scenario.equals("search")) {
+            throw new IllegalArgumentException("Unknown scenario '" + scenario + "': expected mixed or search");
+        }
+        this.searchScenario = scenario.equals("search");
+        this.users = intOption("users", 200);
+        this.projectsPerUser = intOption("projectsPerUser", 20);
+        this.materials = intOption("materials", 2_000);
+        this.materialsPerProject = Math.min(intOption("materialsPerProject", searchScenario ? 0 : 10), materials);
+        this.clients = intOption("clients", 200);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> springArgs = new ArrayList<>();
+        for (String arg : args) {
+            String name = arg.startsWith("--") && arg.contains("=") ? arg.substring(2, arg.indexOf('=')) : null;
+            if (name != null && HARNESS_OPTIONS.contains(name)) {
+                options.put(name, arg.substring(arg.indexOf('=') + 1));
+            } else {
+                springArgs.add(arg);
+            }
+        }
+        new LoadTest(options).run(springArgs.toArray(String[]::new));
+    }
+
+    private static final List<String> HARNESS_OPTIONS = List.of("scenario", "users", "projectsPerUser", "materials",
+            "materialsPerProject", "clients", "warmupSeconds", "durationSeconds", "out");
+
+    private void run(String[] springArgs) throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            SpringApplication app = new SpringApplication(ProjectManagementApplication.class);
+            Map<String, Object> props = new HashMap<>();
+            props.put("spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"));
+            props.put("spring.datasource.username", "postgres");
+            props.put("spring.datasource.password", "postgres");
+            props.put("server.port", "0");
+            props.put("spring.jpa.show-sql", "false");
+            props.put("logging.level.root", "WARN");
+            props.put("logging.level.org.springframework.security", "WARN");
+            // Extensions such as pg_trgm may be missing from the embedded binaries
+            props.put("spring.sql.init.continue-on-error", "true");
+            // Each synthetic user is far busier than a real one; per-user limits would answer mostly 429
+            props.put("app.rate-limit.enabled", "false");
+            // Passed as arguments so that they outrank application.properties and reach the logging
+            // system, which is set up before any initializer runs; the caller's own arguments win
+            List<String> args = new ArrayList<>();
+            for (String arg : springArgs) {
+                if (arg.startsWith("--") && arg.contains("=")) {
+                    props.remove(arg.substring(2, arg.indexOf('=')));
+                }
+                args.add(arg);
+            }
+            props.forEach((name, value) -> args.add("--" + name + "=" + value));
+
+            try (ConfigurableApplicationContext context = app.run(args.toArray(String[]::new))) {
+                String port = context.getEnvironment().getProperty("local.server.port");
+                baseUrl = "http://localhost:" + port;
+                seed(context.getBean(JdbcTemplate.class));
+                boolean virtualThreads = context.getEnvironment()
+                        .getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+                LatencyRecorder total = drive();
+                report(total, virtualThreads);
+            }
+        }
+    }
+
+    private void seed(JdbcTemplate jdbc) {
+        long start = System.nanoTime();
+        String hash = new BCryptPasswordEncoder().encode(PASSWORD);
+        jdbc.update("insert into users (username, password_hash, role)"
+                + " select 'user' || g, ?, 'USER' from generate_series(1, ?) g", hash, users);
+        jdbc.update("insert into materials (name, market_id, seller, material_picture)"
+                + " select 'Material ' || g, 'MKT-' || g, 'Seller ' || (g % 50), null"
+                + " from generate_series(1, ?) g", materials);
+        if (searchScenario) {
+            jdbc.update("insert into users (username, password_hash, role) values (?, ?, 'ADMIN')", SEARCH_ADMIN, hash);
+            // Every name holds "project", one common term and a unique reference; every description a lot
+            jdbc.update("insert into projects (user_id, name, description, created_at, estimated_end)"
+                    + " select u.id, 'Project ' || (?::text[])[1 + (u.id + g) % ?] || ' ref' || u.id || 'x' || g,"
+                    + " 'Extension of the site on lot' || (u.id * 31 + g) % ?,"
+                    + " now() - make_interval(hours => g), now() + interval '30 days'"
+                    + " from users u cross join generate_series(1, ?) g where u.role = 'USER'",
+                    COMMON_TERMS.toArray(String[]::new), COMMON_TERMS.size(), LOTS, projectsPerUser);
+        } else {
+            jdbc.update("insert into projects (user_id, name, description, created_at, estimated_end)"
+                    + " select u.id, 'Project ' || u.id || '-' || g, 'Load test project ' || g,"
+                    + " now() - make_interval(hours => g), now() + interval '30 days'"
+                    + " from users u cross join generate_series(1, ?) g", projectsPerUser);
+        }
+        firstMaterialId = jdbc.queryForObject("select min(id) from materials", Long.class);
+        // Distinct g below the material count gives distinct materials per project
+        jdbc.update("insert into project_materials (id, project_id, material_id, amount)"
+                + " select nextval('project_materials_seq'), p.id, ? + (p.id * 7 + g) % ?, g"
+                + " from projects p cross join generate_series(1, ?) g",
+                firstMaterialId, materials, materialsPerProject);
+        // As autovacuum eventually would: statistics, visibility map and a flushed GIN pending list
+        jdbc.execute("vacuum analyze");
+
+        Map<Integer, List<Integer>> byUser = new HashMap<>();
+        jdbc.query("select u.username, p.id from projects p join users u on u.id = p.user_id"
+                + " where u.role = 'USER'", rs -> {
+            int user = Integer.parseInt(rs.getString(1).substring("user".length()));
+            byUser.computeIfAbsent(user, k -> new ArrayList<>()).add(rs.getInt(2));
+        });
+        projectsByUser = new HashMap<>();
+        byUser.forEach((user, ids) -> projectsByUser.put(user, ids.stream().mapToInt(Integer::intValue).toArray()));
+        System.out.printf("Seeded %d users, %d materials, %d projects, %d project materials in %d ms%n",
+                users, materials, users * projectsPerUser, users * projectsPerUser * materialsPerProject,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private LatencyRecorder drive() throws Exception {
+        int warmupSeconds = intOption("warmupSeconds", 10);
+        int durationSeconds = intOption("durationSeconds", 30);
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        http = HttpClient.newBuilder()
+                .executor(Executors.newCachedThreadPool())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        List<LatencyRecorder> recorders = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            LatencyRecorder recorder = new LatencyRecorder();
+            recorders.add(recorder);
+            int user = i % users + 1;
+            if (searchScenario) {
+                boolean admin = i % 2 == 0;
+                pool.submit(() -> searchClient(user, admin, recorder));
+            } else {
+                pool.submit(() -> client(user, recorder));
+            }
+        }
+        System.out.printf("Warming up %d clients for %d s%n", clients, warmupSeconds);
+        Thread.sleep(TimeUnit.SECONDS.toMillis(warmupSeconds));
+        measuring = true;
+        System.out.printf("Measuring for %d s%n", durationSeconds);
+        Thread.sleep(TimeUnit.SECONDS.toMillis(durationSeconds));
+        measuring = false;
+        stopped = true;
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+
+        LatencyRecorder total = new LatencyRecorder();
+        recorders.forEach(r -> r.mergeInto(total));
+        return total;
+    }
+
+    private void client(int user, LatencyRecorder recorder) {
+        String username = "user" + user;
+        int[] projects = projectsByUser.get(user);
+        String token = null;
+        String catalogEtag = null;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (!stopped) {
+            try {
+                int pick = random.nextInt(100);
+                if (token == null || pick < LOGIN_WEIGHT) {
+                    // A refused re-login leaves the current token usable
+                    String fresh = login(recorder, username);
+                    if (fresh != null) {
+                        token = fresh;
+                    }
+                } else if (pick < LOGIN_WEIGHT + LIST_WEIGHT) {
+                    send(recorder, "GET /api/projects", get("/api/projects?limit=50", token, null));
+                } else if (pick < LOGIN_WEIGHT + LIST_WEIGHT + UPSERT_WEIGHT) {
+                    int project = projects[random.nextInt(projects.length)];
+                    long material = firstMaterialId + random.nextInt(materials);
+                    send(recorder, "POST /api/projects/{id}/materials", post("/api/projects/" + project + "/materials",
+                            "{\"materialId\":" + material + ",\"amount\":" + random.nextInt(1, 100) + "}", token));
+                } else {
+                    HttpResponse<String> res = send(recorder, "GET /api/materials", get("/api/materials", token, catalogEtag));
+                    catalogEtag = res.headers().firstValue("ETag").orElse(catalogEtag);
+                }
+            } catch (Exception e) {
+                if (!stopped) {
+                    recorder.record("client errors", 0, 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Full-text searches only: as the admin over all projects, or as the
+     * user over their own, for one of four term frequencies.
+     */
+    private void searchClient(int user, boolean admin, LatencyRecorder recorder) {
+        String scope = admin ? "all" : "own";
+        String token = null;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (!stopped) {
+            try {
+                if (token == null) {
+                    token = login(recorder, admin ? SEARCH_ADMIN : "user" + user);
+                    continue;
+                }
+                String kind;
+                String query;
+                switch (random.nextInt(4)) {
+                    case 0 -> {
+                        kind = "every project";
+                        query = "project";
+                    }
+                    case 1 -> {
+                        kind = "1 in 20";
+                        query = COMMON_TERMS.get(random.nextInt(COMMON_TERMS.size()));
+                    }
+                    case 2 -> {
+                        kind = "1 in 1000";
+                        query = "lot" + random.nextInt(LOTS);
+                    }
+                    default -> {
+                        kind = "one project";
+                        int owner = admin ? random.nextInt(users) + 1 : user;
+                        query = "ref" + owner + "x" + random.nextInt(1, projectsPerUser + 1);
+                    }
+                }
+                send(recorder, "search " + kind + " (" + scope + ")",
+                        get("/api/projects/search?limit=20&q=" + query, token, null));
+            } catch (Exception e) {
+                if (!stopped) {
+                    recorder.record("client errors", 0, 0);
+                }
+            }
+        }
+    }
+
+    /** Log in, returning the access token or null if the login failed. */
+    private String login(LatencyRecorder recorder, String username) throws Exception {
+        HttpResponse<String> res = send(recorder, "POST /api/auth/login", post("/api/auth/login",
+                "{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}", null));
+        return res.statusCode() == 200 ? JSON.readTree(res.body()).path("token").asText() : null;
+    }
+
+    private HttpResponse<String> send(LatencyRecorder recorder, String endpoint, HttpRequest request) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        long elapsed = System.nanoTime() - start;
+        if (measuring) {
+            recorder.record(endpoint, elapsed, response.statusCode());
+        }
+        if (response.statusCode() == 429 || response.statusCode() == 503) {
+            // Back off as asked instead of retrying at once
+            long seconds = response.headers().firstValueAsLong("Retry-After").orElse(1);
+            Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        }
+        return response;
+    }
+
+    private HttpRequest get(String path, String token, String etag) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(60))
+                .header("Authorization", "Bearer " + token);
+        if (etag != null) {
+            builder.header("If-None-Match", etag);
+        }
+        return builder.GET().build();
+    }
+
+    private HttpRequest post(String path, String body, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json");
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private void report(LatencyRecorder total, boolean virtualThreads) throws Exception {
+        int durationSeconds = intOption("durationSeconds", 30);
+        ObjectNode result = JSON.createObjectNode();
+        result.put("scenario", searchScenario ? "search" : "mixed");
+        result.put("virtualThreads", virtualThreads);
+        result.put("clients", clients);
+        result.put("durationSeconds", durationSeconds);
+        ArrayNode endpoints = result.putArray("endpoints");
+
+        System.out.printf("%nvirtual threads: %s, clients: %d%n", virtualThreads, clients);
+        System.out.printf("%-36s %9s %8s %8s %10s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "shed", "req/s", "p50 ms", "p95 ms", "p99 ms");
+        total.byEndpoint().forEach((endpoint, samples) -> {
+            double throughput = samples.count() / (double) durationSeconds;
+            double p50 = samples.percentileMillis(50);
+            double p95 = samples.percentileMillis(95);
+            double p99 = samples.percentileMillis(99);
+            System.out.printf("%-36s %9d %8d %8d %10.1f %9.2f %9.2f %9.2f%n",
+                    endpoint, samples.count(), samples.errors(), samples.shed(), throughput, p50, p95, p99);
+            ObjectNode node = endpoints.addObject();
+            node.put("endpoint", endpoint);
+            node.put("requests", samples.count());
+            node.put("errors", samples.errors());
+            node.put("shed", samples.shed());
+            node.put("throughput", throughput);
+            node.put("p50Ms", p50);
+            node.put("p95Ms", p95);
+            node.put("p99Ms", p99);
+        });
+
+        File out = new File(options.getOrDefault("out", "target/loadtest-result.json"));
+        if (out.getParentFile() != null) {
+            out.getParentFile().mkdirs();
+        }
+        JSON.writerWithDefaultPrettyPrinter().writeValue(out, result);
+        System.out.println("Results written to " + out.getPath());
+    }
+
+    private int intOption(String name, int defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.pmapp.audit;
+
+import java.time.Instant;
+
+/**
+ * One audited change, as queued for the {@code audit_log} table.
+ * {@code details} is any Jackson-serializable value; it is rendered to
+ * JSON by the drainer, off the request thread.
+ */
+public record AuditEvent(Instant occurredAt,
+                         Integer actorId,
+                         String actorUsername,
+                         String action,
+                         String entityType,
+                         String entityId,
+                         Object details) {}
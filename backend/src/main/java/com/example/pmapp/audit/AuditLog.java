@@ -0,0 +1,400 @@
+package com.example.pmapp.audit;
+
+import com.example.pmapp.security.AuthenticatedUser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind audit trail of who changed which project, material amount
+ * or user.  {@link #record} only queues the event, after the surrounding
+ * transaction commits, in a bounded lock-free {@link AuditRingBuffer};
+ * a single drainer thread writes the queue to {@code audit_log} in
+ * multi-row batches.  Request latency therefore does not include the
+ * audit insert, at the price that events still queued when the process
+ * dies are lost.  On a normal shutdown the queue is flushed first.
+ *
+ * When the buffer is full the {@link OverflowPolicy} decides: wait,
+ * drop, or append to a local spill file that is written to the table
+ * once the backlog clears.
+ *
+ * Only transient failures (the database unreachable, a deadlock, a
+ * timeout) are retried.  A batch the database refuses for good, say for
+ * a value that is too long, is written again one event at a time, and
+ * the events it still refuses are discarded and counted as rejected, so
+ * one bad event cannot stall the drainer and fill the buffer.
+ *
+ * Publishes {@code pmapp.audit.queue} (queued events),
+ * {@code pmapp.audit.lag} (time from the change to its insert) and the
+ * {@code pmapp.audit.written}, {@code .dropped}, {@code .spilled} and
+ * {@code .rejected} counters.
+ */
+@Component
+public class AuditLog implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long MAX_RETRY_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final AuditLogStore store;
+    private final ObjectMapper objectMapper;
+    private final AuditRingBuffer<AuditEvent> buffer;
+    private final AuditSpillFile spill;
+    private final OverflowPolicy overflowPolicy;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long blockTimeoutNanos;
+    private final Duration shutdownTimeout;
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter spilled;
+    private final Counter rejected;
+    private final Timer lag;
+
+    private volatile boolean running;
+    private volatile boolean spillPending;
+    private long nextReplayAttempt;
+    private long replayedLines;
+    private Thread drainer;
+
+    public AuditLog(AuditLogStore store,
+                    ObjectMapper objectMapper,
+                    MeterRegistry meterRegistry,
+                    @Value("${app.audit.buffer-size:8192}") int bufferSize,
+                    @Value("${app.audit.batch-size:500}") int batchSize,
+                    @Value("${app.audit.flush-interval:200ms}") Duration flushInterval,
+                    @Value("${app.audit.overflow-policy:BLOCK}") OverflowPolicy overflowPolicy,
+                    @Value("${app.audit.block-timeout:1s}") Duration blockTimeout,
+                    @Value("${app.audit.spill-file:audit-spill.jsonl}") String spillFile,
+                    @Value("${app.audit.shutdown-timeout:10s}") Duration shutdownTimeout) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.buffer = new AuditRingBuffer<>(bufferSize);
+        this.spill = new AuditSpillFile(Path.of(spillFile), objectMapper);
+        this.overflowPolicy = overflowPolicy;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.blockTimeoutNanos = blockTimeout.toNanos();
+        this.shutdownTimeout = shutdownTimeout;
+
+        Gauge.builder("pmapp.audit.queue", buffer, AuditRingBuffer::size)
+                .description("Audit events waiting to be written")
+                .register(meterRegistry);
+        this.lag = Timer.builder("pmapp.audit.lag")
+                .description("Time from the change to its audit event reaching audit_log")
+                .register(meterRegistry);
+        this.written = Counter.builder("pmapp.audit.written")
+                .description("Audit events written to audit_log")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("pmapp.audit.dropped")
+                .description("Audit events lost because the buffer was full or the table unreachable")
+                .register(meterRegistry);
+        this.spilled = Counter.builder("pmapp.audit.spilled")
+                .description("Audit events written to the local spill file")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("pmapp.audit.rejected")
+                .description("Audit events discarded because the database refused them for good")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Audit a change made by {@code actor}.  Inside a transaction the event
+     * is queued only once it commits; otherwise it is queued at once.
+     *
+     * @param action     what happened, e.g. {@code project.updated}
+     * @param entityType the kind of row changed, e.g. {@code PROJECT}
+     * @param entityId   id of the changed row
+     * @param details    optional Jackson-serializable description of the change
+     */
+    public void record(AuthenticatedUser actor, String action, String entityType, Object entityId, Object details) {
+        AuditEvent event = new AuditEvent(Instant.now(),
+                actor != null ? actor.getId() : null,
+                actor != null ? actor.getUsername() : null,
+                action, entityType, String.valueOf(entityId), details);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(event);
+                }
+            });
+        } else {
+            enqueue(event);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (running) {
+            return;
+        }
+        spillPending = spill.hasPending();
+        nextReplayAttempt = System.nanoTime();
+        running = true;
+        drainer = new Thread(this::drain, "audit-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (drainer == null) {
+            return;
+        }
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join(shutdownTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (drainer.isAlive()) {
+            log.warn("Audit drainer did not finish within {}; {} events may be lost", shutdownTimeout, buffer.size());
+        }
+        try {
+            spill.close();
+        } catch (IOException e) {
+            log.warn("Could not close audit spill file", e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** Stop only after the web server has stopped taking requests, so their events are flushed too. */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void enqueue(AuditEvent event) {
+        if (buffer.offer(event)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                long deadline = System.nanoTime() + blockTimeoutNanos;
+                while (System.nanoTime() < deadline) {
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                    if (buffer.offer(event)) {
+                        return;
+                    }
+                }
+                drop(event);
+            }
+            case SPILL -> spill(event);
+            case DROP -> drop(event);
+        }
+    }
+
+    private void spill(AuditEvent event) {
+        try {
+            spill.append(event);
+            spilled.increment();
+            spillPending = true;
+        } catch (IOException e) {
+            log.warn("Could not spill audit event to {}", spill.path(), e);
+            drop(event);
+        }
+    }
+
+    private void drop(AuditEvent event) {
+        dropped.increment();
+        log.warn("Dropped audit event {} {} {} by user {}", event.action(), event.entityType(), event.entityId(),
+                event.actorId());
+    }
+
+    /** Drainer loop: write whatever is queued, replay spilled events when idle, exit once stopped and empty. */
+    private void drain() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (true) {
+            boolean stopping = !running;
+            if (buffer.drainTo(batch, batchSize) > 0) {
+                write(batch);
+                batch.clear();
+                continue;
+            }
+            if (stopping) {
+                return;
+            }
+            if (spillPending && System.nanoTime() - nextReplayAttempt >= 0) {
+                replaySpill();
+            }
+            LockSupport.parkNanos(flushIntervalNanos);
+        }
+    }
+
+    /** Insert a batch, retrying what is left of it with backoff while the database is unavailable. */
+    private void write(List<AuditEvent> batch) {
+        long backoff = flushIntervalNanos;
+        List<AuditEvent> remaining = batch;
+        while (true) {
+            try {
+                insertIsolating(remaining);
+                return;
+            } catch (InterruptedWrite e) {
+                remaining = remaining.subList(e.done, remaining.size());
+                if (!running) {
+                    log.error("Could not write {} audit events during shutdown", remaining.size(), e.getCause());
+                    remaining.forEach(overflowPolicy == OverflowPolicy.SPILL ? this::spill : this::drop);
+                    return;
+                }
+                log.warn("Could not write {} audit events; retrying", remaining.size(), e.getCause());
+                LockSupport.parkNanos(backoff);
+                backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Insert events in one statement.  If the database refuses it for
+     * good, insert them one at a time and reject those it still refuses.
+     *
+     * @throws InterruptedWrite on a transient failure, saying how many
+     *         leading events are already written or rejected
+     */
+    private void insertIsolating(List<AuditEvent> events) {
+        try {
+            insert(events);
+            return;
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                throw new InterruptedWrite(0, e);
+            }
+            if (events.size() == 1) {
+                reject(events.get(0), e);
+                return;
+            }
+            log.warn("Database refused a batch of {} audit events; writing them one at a time", events.size(), e);
+        }
+        for (int i = 0; i < events.size(); i++) {
+            try {
+                insert(events.subList(i, i + 1));
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    throw new InterruptedWrite(i, e);
+                }
+                reject(events.get(i), e);
+            }
+        }
+    }
+
+    private void insert(List<AuditEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        store.insert(events);
+        written.increment(events.size());
+        Instant now = Instant.now();
+        for (AuditEvent event : events) {
+            lag.record(Duration.between(event.occurredAt(), now));
+        }
+    }
+
+    private void reject(AuditEvent event, RuntimeException cause) {
+        rejected.increment();
+        log.error("Discarded audit event {} {} {} by user {} that the database refused", event.action(),
+                event.entityType(), event.entityId(), event.actorId(), cause);
+    }
+
+    /** Failures worth retrying: the database unreachable, a deadlock or serialization failure, a timeout. */
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException;
+    }
+
+    /**
+     * Write spilled events to the table.  Lines already written from an
+     * interrupted replay are skipped, so a failure part-way does not
+     * duplicate rows.
+     */
+    private void replaySpill() {
+        // Clear first: a spill racing with this replay sets the flag again
+        spillPending = false;
+        try {
+            Path file = spill.takeForReplay();
+            if (file == null) {
+                return;
+            }
+            List<AuditEvent> batch = new ArrayList<>(batchSize);
+            List<Long> lines = new ArrayList<>(batchSize);
+            long line = 0;
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String text;
+                while ((text = reader.readLine()) != null) {
+                    if (line++ < replayedLines || text.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        batch.add(objectMapper.readValue(text, AuditEvent.class));
+                        lines.add(line);
+                    } catch (IOException e) {
+                        log.warn("Skipping malformed line {} of {}", line, file);
+                    }
+                    if (batch.size() == batchSize) {
+                        replay(batch, lines);
+                        replayedLines = line;
+                    }
+                }
+            }
+            replay(batch, lines);
+            spill.finishReplay();
+            replayedLines = 0;
+            spillPending = spill.hasPending();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not replay spilled audit events; will retry", e);
+            spillPending = true;
+            nextReplayAttempt = System.nanoTime() + MAX_RETRY_BACKOFF_NANOS;
+        }
+    }
+
+    /** Write a batch of spilled events; on a transient failure, remember how far it got. */
+    private void replay(List<AuditEvent> batch, List<Long> lines) {
+        try {
+            insertIsolating(batch);
+        } catch (InterruptedWrite e) {
+            if (e.done > 0) {
+                replayedLines = lines.get(e.done - 1);
+            }
+            throw e;
+        }
+        batch.clear();
+        lines.clear();
+    }
+
+    /** A transient write failure after the first {@code done} events of a batch were written or rejected. */
+    private static final class InterruptedWrite extends RuntimeException {
+        final int done;
+
+        InterruptedWrite(int done, RuntimeException cause) {
+            super(cause);
+            this.done = done;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.pmapp.audit;
+
+import com.example.pmapp.dto.AuditEntry;
+import com.example.pmapp.dto.AuditPage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JDBC access to the append-only {@code audit_log} table (created in
+ * schema.sql).  Batches are written as one multi-row INSERT, so a flush
+ * costs a single round trip whatever its size.
+ */
+@Component
+public class AuditLogStore {
+    private static final Logger log = LoggerFactory.getLogger(AuditLogStore.class);
+    private static final String INSERT_PREFIX = "insert into audit_log"
+            + " (occurred_at, actor_id, actor_username, action, entity_type, entity_id, details) values ";
+    private static final String INSERT_ROW = "(?, ?, ?, ?, ?, ?, cast(? as jsonb))";
+    private static final int COLUMNS = 7;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public AuditLogStore(JdbcTemplate jdbcTemplate,
+                         ObjectMapper objectMapper,
+                         @Value("${app.audit.page.default-size:100}") int defaultPageSize,
+                         @Value("${app.audit.page.max-size:500}") int maxPageSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    void insert(List<AuditEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + events.size() * (INSERT_ROW.length() + 2));
+        sql.append(INSERT_PREFIX);
+        Object[] args = new Object[events.size() * COLUMNS];
+        int i = 0;
+        for (AuditEvent event : events) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(INSERT_ROW);
+            args[i++] = OffsetDateTime.ofInstant(event.occurredAt(), ZoneOffset.UTC);
+            args[i++] = event.actorId();
+            args[i++] = event.actorUsername();
+            args[i++] = event.action();
+            args[i++] = event.entityType();
+            args[i++] = event.entityId();
+            args[i++] = toJson(event);
+        }
+        jdbcTemplate.update(sql.toString(), args);
+    }
+
+    /**
+     * One page of entries, newest first, optionally filtered by actor and
+     * by entity.  Pages are addressed by the opaque cursor returned with
+     * the previous page; a null limit selects the default page size.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed, or an
+     *         entity id is given without its type
+     */
+    public AuditPage page(Integer actorId, String entityType, String entityId, String cursor, Integer limit) {
+        if (entityId != null && entityType == null) {
+            throw new IllegalArgumentException("entityType required with entityId");
+        }
+        Long beforeId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                beforeId = Long.valueOf(cursor);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+        }
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        // Fetch one extra row to learn whether another page follows
+        List<AuditEntry> entries = findPage(actorId, entityType, entityId, beforeId, pageSize + 1);
+        String nextCursor = null;
+        if (entries.size() > pageSize) {
+            entries = entries.subList(0, pageSize);
+            nextCursor = String.valueOf(entries.get(pageSize - 1).id());
+        }
+        return new AuditPage(entries, nextCursor);
+    }
+
+    /**
+     * Entries below {@code beforeId}, newest first.  Each filter shape has
+     * a matching {@code (…, id)} index (see schema.sql), so every page
+     * costs the same.
+     */
+    private List<AuditEntry> findPage(Integer actorId, String entityType, String entityId, Long beforeId, int limit) {
+        StringBuilder sql = new StringBuilder("select id, occurred_at, actor_id, actor_username, action,"
+                + " entity_type, entity_id, details::text as details from audit_log where 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (actorId != null) {
+            sql.append(" and actor_id = ?");
+            args.add(actorId);
+        }
+        if (entityType != null) {
+            sql.append(" and entity_type = ?");
+            args.add(entityType);
+            if (entityId != null) {
+                sql.append(" and entity_id = ?");
+                args.add(entityId);
+            }
+        }
+        if (beforeId != null) {
+            sql.append(" and id < ?");
+            args.add(beforeId);
+        }
+        sql.append(" order by id desc limit ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new AuditEntry(
+                rs.getLong("id"),
+                rs.getObject("occurred_at", OffsetDateTime.class).toInstant(),
+                (Integer) rs.getObject("actor_id"),
+                rs.getString("actor_username"),
+                rs.getString("action"),
+                rs.getString("entity_type"),
+                rs.getString("entity_id"),
+                rs.getString("details")), args.toArray());
+    }
+
+    private String toJson(AuditEvent event) {
+        if (event.details() == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(event.details());
+        } catch (JsonProcessingException e) {
+            // Keep the entry itself; losing the details is better than losing who did what
+            log.warn("Could not serialize details of audit event {} {}", event.action(), event.entityId(), e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.pmapp.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer.
+ * Each slot carries a sequence number telling whether it is free for the
+ * producer at a given position or holds an element for the consumer at
+ * that position (Vyukov's bounded queue).  Producers claim positions with
+ * one CAS on the tail; the consumer never contends with them.  A full
+ * queue is reported to the producer instead of waiting.
+ */
+final class AuditRingBuffer<E> {
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    /** Only written by the consumer; volatile so {@link #size()} can be read from other threads. */
+    private volatile long head;
+
+    AuditRingBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = capacity - 1;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /** Add an element; returns false if the queue is full.  Safe from any thread. */
+    boolean offer(E element) {
+        long pos = tail.get();
+        int index;
+        while (true) {
+            index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // The consumer has not freed this slot from the previous lap yet
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+        slots.set(index, element);
+        sequences.set(index, pos + 1);
+        return true;
+    }
+
+    /** Move up to {@code max} elements into {@code sink}.  Consumer thread only. */
+    int drainTo(List<E> sink, int max) {
+        long pos = head;
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) (pos & mask);
+            if (sequences.get(index) != pos + 1) {
+                break;
+            }
+            sink.add(slots.get(index));
+            slots.set(index, null);
+            sequences.set(index, pos + mask + 1);
+            pos++;
+            drained++;
+        }
+        head = pos;
+        return drained;
+    }
+
+    /** Approximate number of queued elements. */
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+}
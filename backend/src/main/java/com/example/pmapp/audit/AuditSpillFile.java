@@ -0,0 +1,78 @@
+package com.example.pmapp.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Local overflow file for audit events, one JSON object per line.  Before
+ * replaying, the drainer moves the file aside so that producers can keep
+ * appending to a fresh one while it is read.
+ */
+final class AuditSpillFile {
+    private final Path path;
+    private final Path replayPath;
+    private final ObjectMapper objectMapper;
+    private BufferedWriter writer;
+
+    AuditSpillFile(Path path, ObjectMapper objectMapper) {
+        this.path = path.toAbsolutePath();
+        this.replayPath = this.path.resolveSibling(this.path.getFileName() + ".replay");
+        this.objectMapper = objectMapper;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    synchronized void append(AuditEvent event) throws IOException {
+        if (writer == null) {
+            Path parent = path.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        writer.write(objectMapper.writeValueAsString(event));
+        writer.newLine();
+        writer.flush();
+    }
+
+    boolean hasPending() {
+        return Files.exists(replayPath) || Files.exists(path);
+    }
+
+    /**
+     * The file to replay: one left over from an interrupted replay, or the
+     * current spill file moved aside.  Returns null if nothing was spilled.
+     */
+    synchronized Path takeForReplay() throws IOException {
+        if (Files.exists(replayPath)) {
+            return replayPath;
+        }
+        if (!Files.exists(path)) {
+            return null;
+        }
+        close();
+        Files.move(path, replayPath, StandardCopyOption.ATOMIC_MOVE);
+        return replayPath;
+    }
+
+    void finishReplay() throws IOException {
+        Files.deleteIfExists(replayPath);
+    }
+
+    synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.pmapp.audit;
+
+/** What {@link AuditLog} does with an event when its buffer is full. */
+public enum OverflowPolicy {
+    /** Wait for room, up to {@code app.audit.block-timeout}, then drop. */
+    BLOCK,
+    /** Drop the event and count it in {@code pmapp.audit.dropped}. */
+    DROP,
+    /** Append the event to {@code app.audit.spill-file}; it is written to the table once the backlog clears. */
+    SPILL
+}
@@ -0,0 +1,23 @@
+package com.example.pmapp.cache;
+
+/**
+ * Local application event telling in-process caches to drop entries.
+ * A null region means "flush everything", which is sent after the node
+ * may have missed invalidations (for example while the listening
+ * connection was down).  A null key means "the whole region".
+ */
+public record CacheInvalidationEvent(CacheRegion region, String key) {
+
+    public static CacheInvalidationEvent flushAll() {
+        return new CacheInvalidationEvent(null, null);
+    }
+
+    public boolean appliesTo(CacheRegion candidate) {
+        return region == null || region == candidate;
+    }
+
+    /** True when every entry of the region must be dropped, not just one key. */
+    public boolean isRegionWide() {
+        return region == null || key == null;
+    }
+}
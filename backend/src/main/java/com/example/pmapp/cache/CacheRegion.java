@@ -0,0 +1,13 @@
+package com.example.pmapp.cache;
+
+/**
+ * Kinds of cached data that can be invalidated across nodes.  The key
+ * published with an invalidation is the id of the changed row.
+ */
+public enum CacheRegion {
+    MATERIALS,
+    USERS,
+    PROJECTS,
+    /** The in-memory token revocation list; keys are token_revocations ids. */
+    TOKEN_REVOCATIONS
+}
@@ -0,0 +1,95 @@
+package com.example.pmapp.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+
+/**
+ * Publishes cache invalidations to this node and, through PostgreSQL
+ * {@code pg_notify}, to every other backend replica.  Writers call
+ * {@link #publish} inside their transaction: the notification is
+ * transactional in PostgreSQL, so other nodes only see it once the write
+ * has committed, and local caches are evicted from an after-commit
+ * callback for the same reason.  {@link InvalidationListener} receives
+ * the notifications on the other nodes.
+ */
+@Component
+public class InvalidationBus {
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher events;
+    private final String channel;
+    private final boolean enabled;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public InvalidationBus(JdbcTemplate jdbcTemplate,
+                           ApplicationEventPublisher events,
+                           @Value("${app.cache.invalidation.channel:pmapp_cache_invalidation}") String channel,
+                           @Value("${app.cache.invalidation.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.events = events;
+        this.channel = channel;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Invalidate one key of a region on every node once the current
+     * transaction commits (or immediately when called outside one).
+     */
+    public void publish(CacheRegion region, Object key) {
+        CacheInvalidationEvent event = new CacheInvalidationEvent(region, key != null ? key.toString() : null);
+        if (enabled) {
+            jdbcTemplate.queryForList("select pg_notify(?, ?)", channel, encode(event));
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    events.publishEvent(event);
+                }
+            });
+        } else {
+            events.publishEvent(event);
+        }
+    }
+
+    String channel() {
+        return channel;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether a notification payload was sent by this node, which has
+     * already evicted its own caches.
+     */
+    boolean isOwn(String payload) {
+        return payload.startsWith(nodeId + "|");
+    }
+
+    private String encode(CacheInvalidationEvent event) {
+        return nodeId + "|" + event.region().name() + "|" + (event.key() != null ? event.key() : "");
+    }
+
+    /**
+     * Parse a notification payload, or return null if it is malformed.
+     */
+    static CacheInvalidationEvent decode(String payload) {
+        String[] parts = payload.split("\\|", 3);
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            CacheRegion region = CacheRegion.valueOf(parts[1]);
+            return new CacheInvalidationEvent(region, parts[2].isEmpty() ? null : parts[2]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
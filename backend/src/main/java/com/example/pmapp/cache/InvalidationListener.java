@@ -0,0 +1,186 @@
+package com.example.pmapp.cache;
+
+import com.example.pmapp.events.ChangeEvent;
+import com.example.pmapp.events.ChangeFeed;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Holds a dedicated PostgreSQL connection that LISTENs on the
+ * invalidation channel and turns notifications from other nodes into
+ * local {@link CacheInvalidationEvent}s.  The connection is opened
+ * directly from the datasource settings rather than borrowed from the
+ * pool, so it never competes with request traffic for a pooled
+ * connection.  The same connection also listens on the {@link ChangeFeed}
+ * channel and republishes project changes for this node's event streams.
+ *
+ * PostgreSQL does not replay notifications sent while a listener was
+ * disconnected.  Whenever the connection is lost every local cache is
+ * flushed, and again on the first successful LISTEN after any gap: the
+ * start-up window before the first LISTEN and every failed attempt count
+ * as gaps, since the pool may keep filling caches meanwhile.  A gap can
+ * therefore only cost cache misses and never serve stale data for longer
+ * than the outage itself.
+ */
+@Component
+public class InvalidationListener implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(InvalidationListener.class);
+    private static final int POLL_TIMEOUT_MS = 5_000;
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final InvalidationBus bus;
+    private final ChangeFeed changeFeed;
+    private final ApplicationEventPublisher events;
+    private final String url;
+    private final String username;
+    private final String password;
+
+    private volatile boolean running;
+    private volatile Connection connection;
+    private Thread thread;
+
+    public InvalidationListener(InvalidationBus bus,
+                                ChangeFeed changeFeed,
+                                ApplicationEventPublisher events,
+                                @Value("${spring.datasource.url}") String url,
+                                @Value("${spring.datasource.username}") String username,
+                                @Value("${spring.datasource.password}") String password) {
+        this.bus = bus;
+        this.changeFeed = changeFeed;
+        this.events = events;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    @Override
+    public void start() {
+        if (!bus.isEnabled() || running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "cache-invalidation-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        closeQuietly(connection);
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        long backoff = 1_000;
+        // Notifications may have been missed: before the first LISTEN and after any failed attempt
+        boolean missed = true;
+        while (running) {
+            boolean listening = false;
+            try (Connection conn = DriverManager.getConnection(url, username, password)) {
+                connection = conn;
+                try (Statement st = conn.createStatement()) {
+                    st.execute("LISTEN " + bus.channel());
+                    if (changeFeed.isEnabled()) {
+                        st.execute("LISTEN " + changeFeed.channel());
+                    }
+                }
+                listening = true;
+                if (missed) {
+                    log.info("Invalidation listener connected; flushing local caches");
+                    dispatch(CacheInvalidationEvent.flushAll());
+                    missed = false;
+                }
+                backoff = 1_000;
+                listen(conn);
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Invalidation listener connection failed: {}", e.getMessage());
+                missed = true;
+                if (listening) {
+                    dispatch(CacheInvalidationEvent.flushAll());
+                }
+            } finally {
+                connection = null;
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+        }
+    }
+
+    private void listen(Connection conn) throws SQLException {
+        PGConnection pg = conn.unwrap(PGConnection.class);
+        while (running) {
+            PGNotification[] notifications = pg.getNotifications(POLL_TIMEOUT_MS);
+            if (notifications == null || notifications.length == 0) {
+                // Idle: make sure the connection is still alive so a silent drop is noticed
+                if (!conn.isValid(POLL_TIMEOUT_MS / 1000)) {
+                    throw new SQLException("listening connection is no longer valid");
+                }
+                continue;
+            }
+            for (PGNotification notification : notifications) {
+                String payload = notification.getParameter();
+                if (payload == null) {
+                    continue;
+                }
+                if (changeFeed.channel().equals(notification.getName())) {
+                    ChangeEvent change = changeFeed.isOwn(payload) ? null : ChangeFeed.decode(payload);
+                    if (change != null) {
+                        dispatch(change);
+                    }
+                    continue;
+                }
+                CacheInvalidationEvent event = bus.isOwn(payload) ? null : InvalidationBus.decode(payload);
+                if (event != null) {
+                    dispatch(event);
+                }
+            }
+        }
+    }
+
+    private void dispatch(Object event) {
+        try {
+            events.publishEvent(event);
+        } catch (RuntimeException e) {
+            // A failing cache must not stop the listener for everyone else
+            log.warn("Handler failed for {}", event, e);
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        if (conn == null) {
+            return;
+        }
+        try {
+            conn.close();
+        } catch (SQLException ignore) {
+            // best effort during shutdown
+        }
+    }
+}
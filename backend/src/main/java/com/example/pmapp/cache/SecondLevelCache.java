@@ -0,0 +1,81 @@
+package com.example.pmapp.cache;
+
+import com.example.pmapp.dto.CacheRegionStats;
+import com.example.pmapp.model.Material;
+import com.example.pmapp.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bridges the Hibernate second-level cache to the invalidation bus and
+ * reports its statistics.  Hibernate keeps the cache consistent with
+ * writes made through this node; entries changed by other replicas are
+ * evicted here when their invalidation arrives.
+ */
+@Component
+public class SecondLevelCache {
+    private final SessionFactory sessionFactory;
+
+    public SecondLevelCache(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    @EventListener
+    public void onInvalidation(CacheInvalidationEvent event) {
+        Cache cache = sessionFactory.getCache();
+        if (event.region() == null) {
+            cache.evictAllRegions();
+            return;
+        }
+        switch (event.region()) {
+            case MATERIALS -> {
+                if (event.isRegionWide()) {
+                    cache.evictEntityData(Material.class);
+                } else {
+                    cache.evictEntityData(Material.class, Long.valueOf(event.key()));
+                }
+            }
+            case USERS -> {
+                if (event.isRegionWide()) {
+                    cache.evictEntityData(User.class);
+                } else {
+                    cache.evictEntityData(User.class, Integer.valueOf(event.key()));
+                }
+                // A renamed or deleted user may still be cached under the old username
+                cache.evictQueryRegion(User.BY_USERNAME_REGION);
+            }
+            default -> {
+                // projects and token revocations are not held in the second-level cache
+            }
+        }
+    }
+
+    /**
+     * Per-region counters, or an empty list when statistics are disabled
+     * (hibernate.generate_statistics=false).
+     */
+    public List<CacheRegionStats> statistics() {
+        Statistics stats = sessionFactory.getStatistics();
+        if (!stats.isStatisticsEnabled()) {
+            return List.of();
+        }
+        List<CacheRegionStats> result = new ArrayList<>();
+        Arrays.stream(stats.getSecondLevelCacheRegionNames()).sorted().forEach(name -> {
+            CacheRegionStatistics region = stats.getCacheRegionStatistics(name);
+            if (region != null) {
+                result.add(new CacheRegionStats(name, region.getHitCount(), region.getMissCount(),
+                        region.getPutCount(), region.getElementCountInMemory()));
+            }
+        });
+        return result;
+    }
+}
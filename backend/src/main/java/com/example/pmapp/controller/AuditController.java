@@ -0,0 +1,37 @@
+package com.example.pmapp.controller;
+
+import com.example.pmapp.audit.AuditLogStore;
+import com.example.pmapp.dto.AuditPage;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Administrator view of the audit log, newest first.  Filter by the
+ * acting user, or by entity type (PROJECT, PROJECT_MATERIAL, USER) and
+ * optionally entity id; page with the returned cursor.  Recent changes
+ * may take up to {@code app.audit.flush-interval} to show up.
+ */
+@RestController
+@RequestMapping("/api/admin/audit")
+public class AuditController {
+    private final AuditLogStore store;
+
+    public AuditController(AuditLogStore store) {
+        this.store = store;
+    }
+
+    @GetMapping
+    public ResponseEntity<AuditPage> list(@RequestParam(required = false) Integer actorId,
+                                          @RequestParam(required = false) String entityType,
+                                          @RequestParam(required = false) String entityId,
+                                          @RequestParam(required = false) String cursor,
+                                          @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(store.page(actorId, entityType, entityId, cursor, limit));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Void> handleIllegalArgument(IllegalArgumentException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+    }
+}
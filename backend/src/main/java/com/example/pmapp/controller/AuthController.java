@@ -2,12 +2,20 @@ package com.example.pmapp.controller;
 
 import com.example.pmapp.dto.AuthRequest;
 import com.example.pmapp.dto.AuthResponse;
+import com.example.pmapp.dto.RefreshRequest;
 import com.example.pmapp.dto.RegisterRequest;
 import com.example.pmapp.model.Role;
 import com.example.pmapp.model.User;
 import com.example.pmapp.repository.UserRepository;
+import com.example.pmapp.security.AuthenticatedUser;
+import com.example.pmapp.security.TokenRevocationList;
 import com.example.pmapp.service.JwtService;
+import com.example.pmapp.service.RefreshTokenService;
+import com.example.pmapp.service.TokenRevocationService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -27,15 +35,24 @@ public class AuthController {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
+    private final TokenRevocationList tokenRevocationList;
 
     public AuthController(AuthenticationManager authenticationManager,
                           UserRepository userRepository,
                           PasswordEncoder passwordEncoder,
-                          JwtService jwtService) {
+                          JwtService jwtService,
+                          RefreshTokenService refreshTokenService,
+                          TokenRevocationService tokenRevocationService,
+                          TokenRevocationList tokenRevocationList) {
         this.authenticationManager = authenticationManager;
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtService = jwtService;
+        this.refreshTokenService = refreshTokenService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.tokenRevocationList = tokenRevocationList;
     }
 
     @PostMapping("/register")
@@ -49,12 +66,8 @@ public class AuthController {
         user.setRole(Role.USER);
         userRepository.save(user);
 
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
-        );
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        String token = jwtService.generateToken(userDetails);
-        return ResponseEntity.ok(new AuthResponse(user.getUsername(), user.getId(), user.getRole().name(), token));
+        // The password was just hashed from this request, so verifying it again would only cost a second BCrypt round
+        return ResponseEntity.ok(tokensFor(user, refreshTokenService.issue(user)));
     }
 
     @PostMapping("/login")
@@ -63,11 +76,53 @@ public class AuthController {
             Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword()));
             UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-            String token = jwtService.generateToken(userDetails);
             User user = userRepository.findByUsername(userDetails.getUsername()).orElseThrow();
-            return ResponseEntity.ok(new AuthResponse(user.getUsername(), user.getId(), user.getRole().name(), token));
+            return ResponseEntity.ok(tokensFor(user, refreshTokenService.issue(user)));
         } catch (BadCredentialsException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
     }
+
+    /**
+     * Exchange a refresh token for a new access token and its successor
+     * refresh token, without re-checking the password.  Each refresh token
+     * works once; replaying an old one revokes every token of its login,
+     * except right after its exchange, when the same successor is returned.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponse> refresh(@Valid @RequestBody RefreshRequest request) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(request.getRefreshToken());
+        if (rotation == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(tokensFor(rotation.user(), rotation.refreshToken()));
+    }
+
+    /**
+     * Revoke the refresh tokens of this login and, when sent along as a
+     * bearer token, the access token too.
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@Valid @RequestBody RefreshRequest request,
+                                       @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        refreshTokenService.revokeFamily(request.getRefreshToken());
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            try {
+                Claims claims = jwtService.parseClaims(authorization.substring(7));
+                Integer userId = jwtService.extractUserId(claims);
+                if (claims.getId() != null && userId != null) {
+                    tokenRevocationService.revoke(claims.getId(), userId, claims.getExpiration().toInstant());
+                }
+            } catch (JwtException | IllegalArgumentException ignore) {
+                // An invalid or expired token needs no revocation
+            }
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    private AuthResponse tokensFor(User user, String refreshToken) {
+        // Past any cut-off for this user, e.g. right after a username change
+        String token = jwtService.generateToken(AuthenticatedUser.from(user), tokenRevocationList.issuedAtFor(user.getId()));
+        return new AuthResponse(user.getUsername(), user.getId(), user.getRole().name(), token, refreshToken);
+    }
 }
@@ -0,0 +1,28 @@
+package com.example.pmapp.controller;
+
+import com.example.pmapp.cache.SecondLevelCache;
+import com.example.pmapp.dto.CacheRegionStats;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Read-only view of the second-level cache counters, for administrators
+ * checking that hot reads are actually served from memory.
+ */
+@RestController
+@RequestMapping("/api/admin/cache")
+public class CacheStatsController {
+    private final SecondLevelCache cache;
+
+    public CacheStatsController(SecondLevelCache cache) {
+        this.cache = cache;
+    }
+
+    @GetMapping("/stats")
+    public List<CacheRegionStats> stats() {
+        return cache.statistics();
+    }
+}
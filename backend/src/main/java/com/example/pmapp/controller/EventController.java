@@ -0,0 +1,58 @@
+package com.example.pmapp.controller;
+
+import com.example.pmapp.dto.StreamTicketResponse;
+import com.example.pmapp.events.EventStreamHub;
+import com.example.pmapp.events.StreamTicketStore;
+import com.example.pmapp.security.AuthenticatedUser;
+import com.example.pmapp.security.JwtAuthFilter;
+import com.example.pmapp.security.VerifiedToken;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Server-Sent Events stream of changes to the caller's projects and their
+ * materials (all projects for admins), so clients can update their lists
+ * in place instead of re-fetching them.  Event names are
+ * {@code project.created}, {@code project.updated}, {@code project.deleted},
+ * {@code project-material.upserted}, {@code project-material.deleted} and
+ * {@code project-materials.changed}; the data is JSON with the project id
+ * and, where available, the new state.  Browsers' EventSource cannot set
+ * headers, so such clients first POST to {@code /api/events/tickets} with
+ * their bearer token and open the stream with the single-use ticket they
+ * get back: {@code GET /api/events?ticket=...}.  A stream ends when the
+ * access token behind it expires or is revoked.
+ */
+@RestController
+@RequestMapping("/api/events")
+public class EventController {
+    private final EventStreamHub hub;
+    private final StreamTicketStore tickets;
+
+    public EventController(EventStreamHub hub, StreamTicketStore tickets) {
+        this.hub = hub;
+        this.tickets = tickets;
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(AuthenticatedUser caller,
+                             @RequestAttribute(JwtAuthFilter.VERIFIED_TOKEN_ATTRIBUTE) VerifiedToken token) {
+        SseEmitter emitter = hub.subscribe(caller, token);
+        if (emitter == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many open event streams");
+        }
+        return emitter;
+    }
+
+    @PostMapping("/tickets")
+    public StreamTicketResponse ticket(AuthenticatedUser caller,
+                                       @RequestAttribute(JwtAuthFilter.VERIFIED_TOKEN_ATTRIBUTE) VerifiedToken token) {
+        return new StreamTicketResponse(tickets.issue(caller.getId(), token), tickets.getTtl().toSeconds());
+    }
+}
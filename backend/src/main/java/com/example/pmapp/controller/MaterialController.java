@@ -1,33 +1,94 @@
 package com.example.pmapp.controller;
 
+import com.example.pmapp.dto.MaterialImportResult;
 import com.example.pmapp.dto.MaterialRequest;
 import com.example.pmapp.dto.MaterialResponse;
-import com.example.pmapp.model.User;
+import com.example.pmapp.security.AuthenticatedUser;
+import com.example.pmapp.service.MaterialCatalog;
+import com.example.pmapp.service.MaterialImportService;
 import com.example.pmapp.service.MaterialService;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/materials")
 public class MaterialController {
+    private static final int MAX_SUGGESTIONS = 50;
+
     private final MaterialService svc;
-    public MaterialController(MaterialService svc) { this.svc = svc; }
+    private final MaterialImportService importService;
+    public MaterialController(MaterialService svc, MaterialImportService importService) {
+        this.svc = svc;
+        this.importService = importService;
+    }
 
+    /**
+     * The full catalog.  The body is written from a cached, pre-serialized
+     * snapshot; clients that send the previous ETag in If-None-Match get
+     * an empty 304 until the catalog changes.
+     */
     @GetMapping
-    public List<MaterialResponse> list() {
-        return svc.listMaterials();
+    public ResponseEntity<byte[]> list() {
+        MaterialCatalog.Snapshot snapshot = svc.catalog();
+        // Spring answers 304 itself when If-None-Match matches the ETag
+        return ResponseEntity.ok()
+                .eTag(snapshot.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot.json());
+    }
+
+    /**
+     * Autocomplete: materials whose name (or a word in it), marketId or
+     * seller starts with {@code prefix}, or that resemble it when nothing
+     * starts with it.  {@code limit} defaults to 10 and is capped at 50.
+     */
+    @GetMapping("/suggest")
+    public List<MaterialResponse> suggest(@RequestParam String prefix,
+                                          @RequestParam(defaultValue = "10") int limit) {
+        return svc.suggest(prefix, Math.max(1, Math.min(limit, MAX_SUGGESTIONS)));
     }
 
     @PostMapping
-    public MaterialResponse create(@AuthenticationPrincipal User caller,
+    public MaterialResponse create(AuthenticatedUser caller,
                                    @RequestBody MaterialRequest req) {
         return svc.createMaterial(caller, req);
     }
 
     @DeleteMapping("/{id}")
-    public void delete(@AuthenticationPrincipal User caller, @PathVariable Long id) {
+    public void delete(AuthenticatedUser caller, @PathVariable Long id) {
         svc.deleteMaterial(caller, id);
     }
+
+    /**
+     * Bulk-import a supplier catalog from a UTF-8 CSV upload (form field
+     * "file").  Admin only.  Rows are matched on marketId; the response
+     * reports how many were inserted or updated and why the others were
+     * rejected.
+     */
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public MaterialImportResult importCsv(AuthenticatedUser caller,
+                                          @RequestParam("file") MultipartFile file) throws IOException {
+        try (Reader csv = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)) {
+            return importService.importCsv(caller, csv);
+        } catch (IllegalArgumentException ex) {
+            HttpStatus status = "Forbidden".equals(ex.getMessage()) ? HttpStatus.FORBIDDEN : HttpStatus.BAD_REQUEST;
+            throw new ResponseStatusException(status, ex.getMessage());
+        } catch (DataIntegrityViolationException ex) {
+            // e.g. two materials swapping names, or a concurrent import of the same rows
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Import conflicts with existing materials");
+        }
+    }
 }
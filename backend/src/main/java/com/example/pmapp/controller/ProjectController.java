@@ -1,18 +1,25 @@
 package com.example.pmapp.controller;
 
+import com.example.pmapp.dto.ProjectPage;
 import com.example.pmapp.dto.ProjectRequest;
 import com.example.pmapp.dto.ProjectResponse;
-import com.example.pmapp.model.User;
-import com.example.pmapp.repository.UserRepository;
+import com.example.pmapp.model.ProjectStatus;
+import com.example.pmapp.repository.ProjectFilter;
+import com.example.pmapp.security.AuthenticatedUser;
 import com.example.pmapp.service.ProjectService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * REST controller exposing CRUD operations for projects.  All endpoints
@@ -22,23 +29,106 @@ import java.util.List;
 @RestController
 @RequestMapping("/api/projects")
 public class ProjectController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String SEARCH_TRUNCATED_HEADER = "X-Search-Truncated";
+
     private final ProjectService projectService;
-    private final UserRepository userRepository;
 
-    public ProjectController(ProjectService projectService, UserRepository userRepository) {
+    public ProjectController(ProjectService projectService) {
         this.projectService = projectService;
-        this.userRepository = userRepository;
     }
 
     /**
-     * List projects for the current user.  Admins will receive all
-     * projects.
+     * List projects for the current user, newest first.  Admins will
+     * receive all projects and may filter by owner.  The response body is
+     * one page; when more projects match, the cursor for the next page is
+     * returned in the X-Next-Cursor header.  Optional filters: status
+     * (open, overdue or finished; case-insensitive), ownerId and a createdAt range
+     * [from, to) as ISO-8601 date-times.
      */
     @GetMapping
-    public ResponseEntity<List<ProjectResponse>> listProjects(@AuthenticationPrincipal UserDetails userDetails) {
-        User caller = userRepository.findByUsername(userDetails.getUsername()).orElseThrow();
-        List<ProjectResponse> projects = projectService.getProjectsFor(caller);
-        return ResponseEntity.ok(projects);
+    public ResponseEntity<List<ProjectResponse>> listProjects(
+            AuthenticatedUser caller,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Integer ownerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        ProjectPage page;
+        try {
+            ProjectFilter filter = filterOf(status, ownerId, from, to);
+            page = projectService.getProjectsFor(caller, filter, cursor, limit);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
+    }
+
+    /**
+     * Full-text search over project names and descriptions, best match
+     * first.  {@code q} accepts web search syntax ("exact phrase", -word,
+     * or).  Visibility and pagination (limit, cursor, X-Next-Cursor) work
+     * as for the listing.  Only the newest matches are ranked; when older
+     * ones were left out, every page carries X-Search-Truncated: true.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<ProjectResponse>> searchProjects(
+            AuthenticatedUser caller,
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Integer ownerId) {
+        ProjectPage page;
+        try {
+            page = projectService.searchProjects(caller, q, ownerId, cursor, limit);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        if (page.truncated()) {
+            response.header(SEARCH_TRUNCATED_HEADER, "true");
+        }
+        return response.body(page.items());
+    }
+
+    /**
+     * Export projects together with their materials as newline-delimited
+     * JSON, one project per line.  Takes the same filters and visibility
+     * rules as the listing but is not paginated: the response is streamed
+     * while the database is read, however many projects there are.
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportProjects(
+            AuthenticatedUser caller,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Integer ownerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            HttpServletResponse response) throws IOException {
+        ProjectFilter filter;
+        try {
+            filter = filterOf(status, ownerId, from, to);
+        } catch (IllegalArgumentException ex) {
+            response.sendError(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        projectService.exportProjects(caller, filter, response.getOutputStream());
+    }
+
+    private static ProjectFilter filterOf(String status, Integer ownerId, LocalDateTime from, LocalDateTime to) {
+        ProjectStatus statusFilter = status == null || status.isBlank()
+                ? null : ProjectStatus.valueOf(status.trim().toUpperCase(Locale.ROOT));
+        return new ProjectFilter(ownerId, statusFilter, from, to);
     }
 
     /**
@@ -46,9 +136,8 @@ public class ProjectController {
      * regardless of the userId specified in the request payload.
      */
     @PostMapping
-    public ResponseEntity<ProjectResponse> createProject(@AuthenticationPrincipal UserDetails userDetails,
+    public ResponseEntity<ProjectResponse> createProject(AuthenticatedUser caller,
                                                          @Valid @RequestBody ProjectRequest request) {
-        User caller = userRepository.findByUsername(userDetails.getUsername()).orElseThrow();
         ProjectResponse response = projectService.createProject(caller, request);
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
@@ -58,9 +147,8 @@ public class ProjectController {
      * this operation.
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteProject(@AuthenticationPrincipal UserDetails userDetails,
+    public ResponseEntity<Void> deleteProject(AuthenticatedUser caller,
                                               @PathVariable Integer id) {
-        User caller = userRepository.findByUsername(userDetails.getUsername()).orElseThrow();
         try {
             projectService.deleteProject(caller, id);
             return ResponseEntity.noContent().build();
@@ -75,10 +163,9 @@ public class ProjectController {
      * cleared on the entity.  The username on the request is ignored.
      */
     @PutMapping("/{id}")
-    public ResponseEntity<ProjectResponse> updateProject(@AuthenticationPrincipal UserDetails userDetails,
+    public ResponseEntity<ProjectResponse> updateProject(AuthenticatedUser caller,
                                                          @PathVariable Integer id,
                                                          @Valid @RequestBody ProjectRequest request) {
-        User caller = userRepository.findByUsername(userDetails.getUsername()).orElseThrow();
         try {
             ProjectResponse updated = projectService.updateProject(caller, id, request);
             return ResponseEntity.ok(updated);
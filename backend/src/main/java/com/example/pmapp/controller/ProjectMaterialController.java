@@ -1,15 +1,14 @@
 package com.example.pmapp.controller;
 
+import com.example.pmapp.dto.ProjectMaterialDeltaRequest;
 import com.example.pmapp.dto.ProjectMaterialRequest;
 import com.example.pmapp.dto.ProjectMaterialResponse;
-import com.example.pmapp.model.User;
-import com.example.pmapp.repository.UserRepository;
+import com.example.pmapp.security.AuthenticatedUser;
 import com.example.pmapp.service.ProjectMaterialService;
 import jakarta.validation.Valid;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -19,35 +18,66 @@ import java.util.List;
 public class ProjectMaterialController {
 
     private final ProjectMaterialService service;
-    private final UserRepository userRepository;
 
-    public ProjectMaterialController(ProjectMaterialService service, UserRepository userRepository) {
+    public ProjectMaterialController(ProjectMaterialService service) {
         this.service = service;
-        this.userRepository = userRepository;
     }
 
     @GetMapping
-    public ResponseEntity<List<ProjectMaterialResponse>> list(@AuthenticationPrincipal UserDetails userDetails,
+    public ResponseEntity<List<ProjectMaterialResponse>> list(AuthenticatedUser caller,
                                                               @PathVariable Integer projectId) {
-        User caller = userRepository.findByUsername(userDetails.getUsername()).orElseThrow();
         return ResponseEntity.ok(service.list(caller, projectId));
     }
 
     @PostMapping
-    public ResponseEntity<ProjectMaterialResponse> upsert(@AuthenticationPrincipal UserDetails userDetails,
+    public ResponseEntity<ProjectMaterialResponse> upsert(AuthenticatedUser caller,
                                                           @PathVariable Integer projectId,
                                                           @Valid @RequestBody ProjectMaterialRequest req) {
-        User caller = userRepository.findByUsername(userDetails.getUsername()).orElseThrow();
         ProjectMaterialResponse resp = service.upsert(caller, projectId, req);
         return ResponseEntity.status(HttpStatus.CREATED).body(resp);
     }
 
+    /**
+     * Add a (possibly negative) delta to the amount of one material.  The
+     * change is applied atomically in the database, so concurrent
+     * increments from several clients are never lost.
+     */
+    @PatchMapping
+    public ResponseEntity<ProjectMaterialResponse> addAmount(AuthenticatedUser caller,
+                                                             @PathVariable Integer projectId,
+                                                             @Valid @RequestBody ProjectMaterialDeltaRequest req) {
+        return ResponseEntity.ok(service.addAmount(caller, projectId, req));
+    }
+
+    /**
+     * Set the amounts of several materials in one call.  The whole batch
+     * is applied in a single transaction; if any item is invalid nothing
+     * is written.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<ProjectMaterialResponse>> upsertAll(AuthenticatedUser caller,
+                                                                   @PathVariable Integer projectId,
+                                                                   @RequestBody List<ProjectMaterialRequest> req) {
+        List<ProjectMaterialResponse> resp = service.upsertAll(caller, projectId, req);
+        return ResponseEntity.status(HttpStatus.CREATED).body(resp);
+    }
+
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> delete(@AuthenticationPrincipal UserDetails userDetails,
+    public ResponseEntity<Void> delete(AuthenticatedUser caller,
                                        @PathVariable Integer projectId,
                                        @PathVariable Integer id) {
-        User caller = userRepository.findByUsername(userDetails.getUsername()).orElseThrow();
         service.delete(caller, projectId, id);
         return ResponseEntity.noContent().build();
     }
+
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Void> handleConflict(DataIntegrityViolationException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Void> handleIllegalArgument(IllegalArgumentException ex) {
+        HttpStatus status = "Forbidden".equals(ex.getMessage()) ? HttpStatus.FORBIDDEN : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status).build();
+    }
 }
@@ -0,0 +1,36 @@
+package com.example.pmapp.controller;
+
+import com.example.pmapp.dto.SyncResponse;
+import com.example.pmapp.security.AuthenticatedUser;
+import com.example.pmapp.service.SyncService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Delta sync for clients that were offline.  Call without {@code since}
+ * (or whenever the response says {@code reset}) to learn that a full
+ * reload is needed and obtain a cursor; afterwards pass the last cursor
+ * to receive only the ids of rows written or deleted since then, and
+ * fetch the changed rows through the regular endpoints.
+ */
+@RestController
+@RequestMapping("/api/sync")
+public class SyncController {
+    private final SyncService service;
+
+    public SyncController(SyncService service) {
+        this.service = service;
+    }
+
+    @GetMapping
+    public ResponseEntity<SyncResponse> sync(AuthenticatedUser caller,
+                                             @RequestParam(required = false) String since) {
+        return ResponseEntity.ok(service.changesSince(caller, since));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Void> handleIllegalArgument(IllegalArgumentException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+    }
+}
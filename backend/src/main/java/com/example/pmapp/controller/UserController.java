@@ -1,18 +1,23 @@
 package com.example.pmapp.controller;
 
+import com.example.pmapp.audit.AuditLog;
+import com.example.pmapp.cache.CacheRegion;
+import com.example.pmapp.cache.InvalidationBus;
 import com.example.pmapp.dto.ChangePasswordRequest;
 import com.example.pmapp.dto.ChangeUsernameRequest;
 import com.example.pmapp.model.User;
 import com.example.pmapp.repository.UserRepository;
+import com.example.pmapp.security.AuthenticatedUser;
+import com.example.pmapp.service.RefreshTokenService;
+import com.example.pmapp.service.TokenRevocationService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.Objects;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/users")
@@ -20,21 +25,33 @@ public class UserController {
 
     private final UserRepository users;
     private final PasswordEncoder encoder;
-
-    public UserController(UserRepository users, PasswordEncoder encoder) {
+    private final InvalidationBus invalidationBus;
+    private final RefreshTokenService refreshTokens;
+    private final TokenRevocationService tokenRevocations;
+    private final AuditLog auditLog;
+
+    public UserController(UserRepository users,
+                          PasswordEncoder encoder,
+                          InvalidationBus invalidationBus,
+                          RefreshTokenService refreshTokens,
+                          TokenRevocationService tokenRevocations,
+                          AuditLog auditLog) {
         this.users = users;
         this.encoder = encoder;
+        this.invalidationBus = invalidationBus;
+        this.refreshTokens = refreshTokens;
+        this.tokenRevocations = tokenRevocations;
+        this.auditLog = auditLog;
     }
 
     // ------------ change USERNAME (requires current password) ------------
     @PutMapping("/me/username")
     @Transactional
     public ResponseEntity<Void> changeUsername(
-            Authentication auth,
+            AuthenticatedUser caller,
             @RequestBody ChangeUsernameRequest req) {
 
-        final String username = Objects.requireNonNull(auth.getName(), "No principal");
-        User u = users.findByUsername(username)
+        User u = users.findById(caller.getId())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not found"));
 
         // 1) verify current password
@@ -50,8 +67,14 @@ public class UserController {
             throw new ResponseStatusException(HttpStatus.CONFLICT, "Username already in use");
         }
 
+        String oldUsername = u.getUsername();
         u.setUsername(newUsername);
         users.save(u);
+        // Live access tokens carry the old username as subject; clients pick up a new one via /auth/refresh
+        tokenRevocations.revokeAllOfUser(u.getId());
+        invalidationBus.publish(CacheRegion.USERS, u.getId());
+        auditLog.record(caller, "user.username-changed", "USER", u.getId(),
+                Map.of("oldUsername", oldUsername, "newUsername", newUsername));
         return ResponseEntity.noContent().build();
     }
 
@@ -59,11 +82,10 @@ public class UserController {
     @PutMapping("/me/password")
     @Transactional
     public ResponseEntity<Void> changePassword(
-            Authentication auth,
+            AuthenticatedUser caller,
             @RequestBody ChangePasswordRequest req) {
 
-        final String username = Objects.requireNonNull(auth.getName(), "No principal");
-        User u = users.findByUsername(username)
+        User u = users.findById(caller.getId())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not found"));
 
         // 1) verify current password
@@ -79,8 +101,12 @@ public class UserController {
         // 2) update password
         u.setPasswordHash(encoder.encode(newPassword));
         users.save(u);
-
-        // Optional: invalidate sessions/tokens here if you keep a token store.
+        // Every login, including this one, must sign in again with the new password
+        refreshTokens.revokeAll(u.getId());
+        tokenRevocations.revokeAllOfUser(u.getId());
+        // Drop cached principals for this user on every node
+        invalidationBus.publish(CacheRegion.USERS, u.getId());
+        auditLog.record(caller, "user.password-changed", "USER", u.getId(), null);
         return ResponseEntity.noContent().build();
     }
 
@@ -0,0 +1,43 @@
+package com.example.pmapp.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Wraps the Hikari pool in a {@link ConnectionLimitingDataSource} sized to
+ * the pool.  Enabled by {@code app.datasource.limiter.enabled}, which
+ * follows {@code spring.threads.virtual.enabled} unless set explicitly:
+ * with platform threads Tomcat's thread pool already bounds concurrency,
+ * with virtual threads nothing else does.
+ */
+@Component
+public class ConnectionLimiterPostProcessor implements BeanPostProcessor {
+    private static final Logger log = LoggerFactory.getLogger(ConnectionLimiterPostProcessor.class);
+
+    private final boolean enabled;
+    private final Duration acquireTimeout;
+
+    public ConnectionLimiterPostProcessor(Environment environment) {
+        boolean virtualThreads = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+        this.enabled = environment.getProperty("app.datasource.limiter.enabled", Boolean.class, virtualThreads);
+        this.acquireTimeout = DurationStyle.detectAndParse(
+                environment.getProperty("app.datasource.limiter.acquire-timeout", "60s"));
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!enabled || !(bean instanceof HikariDataSource hikari)) {
+            return bean;
+        }
+        int poolSize = hikari.getMaximumPoolSize();
+        log.info("Limiting concurrent database access to {} connections (acquire timeout {})", poolSize, acquireTimeout);
+        return new ConnectionLimitingDataSource(hikari, poolSize, acquireTimeout);
+    }
+}
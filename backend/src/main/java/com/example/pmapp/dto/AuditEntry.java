@@ -0,0 +1,15 @@
+package com.example.pmapp.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.Instant;
+
+/** One row of the audit log as returned by {@code GET /api/admin/audit}. */
+public record AuditEntry(Long id,
+                         Instant occurredAt,
+                         Integer actorId,
+                         String actorUsername,
+                         String action,
+                         String entityType,
+                         String entityId,
+                         @JsonRawValue String details) {}
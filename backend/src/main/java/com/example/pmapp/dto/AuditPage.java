@@ -0,0 +1,9 @@
+package com.example.pmapp.dto;
+
+import java.util.List;
+
+/**
+ * One page of the audit log, newest first.  {@code nextCursor} is null
+ * when there are no older entries matching the filter.
+ */
+public record AuditPage(List<AuditEntry> items, String nextCursor) {}
@@ -2,14 +2,15 @@ package com.example.pmapp.dto;
 
 /**
  * Response returned after a successful authentication.  Contains the
- * JWT token used for authorising subsequent requests and basic user
- * profile information.
+ * JWT token used for authorising subsequent requests, the single-use
+ * refresh token that renews it, and basic user profile information.
  */
 public class AuthResponse {
     private String username;
     private int id;
     private String role;
     private String token;
+    private String refreshToken;
 
     public AuthResponse() {}
 
@@ -20,6 +21,11 @@ public class AuthResponse {
         this.token = token;
     }
 
+    public AuthResponse(String username, int id, String role, String token, String refreshToken) {
+        this(username, id, role, token);
+        this.refreshToken = refreshToken;
+    }
+
     public String getUsername() {
         return username;
     }
@@ -43,4 +49,12 @@ public class AuthResponse {
     public void setToken(String token) {
         this.token = token;
     }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,6 @@
+package com.example.pmapp.dto;
+
+/**
+ * Hit/miss counters of one second-level cache region since startup.
+ */
+public record CacheRegionStats(String region, long hits, long misses, long puts, long elements) {}
@@ -0,0 +1,17 @@
+package com.example.pmapp.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a catalog import.  {@code rejected} counts every rejected
+ * row, while {@code rejections} lists at most the first few hundred of
+ * them with the reason, identified by their line in the uploaded file.
+ */
+public record MaterialImportResult(long received,
+                                   long inserted,
+                                   long updated,
+                                   long rejected,
+                                   List<Rejection> rejections) {
+
+    public record Rejection(long line, String marketId, String reason) {}
+}
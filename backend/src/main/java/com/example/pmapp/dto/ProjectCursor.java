@@ -0,0 +1,50 @@
+package com.example.pmapp.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the project listing, expressed as the {@code (createdAt, id)}
+ * key of the last project on the previous page.  Clients treat the
+ * encoded form as an opaque string and pass it back as the "cursor"
+ * query parameter to fetch the next page.
+ */
+public record ProjectCursor(LocalDateTime createdAt, Integer id) {
+
+    /**
+     * Cursor pointing just after the given project.
+     */
+    public static ProjectCursor after(ProjectResponse project) {
+        return new ProjectCursor(LocalDateTime.parse(project.getCreatedAt()), project.getId());
+    }
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor previously produced by {@link #encode()}.  Returns
+     * null for a null or blank value.
+     *
+     * @throws IllegalArgumentException if the value is not a valid cursor
+     */
+    public static ProjectCursor decode(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            if (sep < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new ProjectCursor(LocalDateTime.parse(raw.substring(0, sep)),
+                    Integer.valueOf(raw.substring(sep + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
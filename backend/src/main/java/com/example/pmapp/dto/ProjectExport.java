@@ -0,0 +1,12 @@
+package com.example.pmapp.dto;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+import java.util.List;
+
+/**
+ * One line of the NDJSON project export: the project as returned by the
+ * listing endpoint, plus its bill of materials.
+ */
+public record ProjectExport(@JsonUnwrapped ProjectResponse project,
+                            List<ProjectMaterialResponse> materials) {}
@@ -0,0 +1,33 @@
+package com.example.pmapp.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Request to change the amount of a material on a project by a relative
+ * amount.  A negative delta decreases the amount; the result is never
+ * allowed to drop below zero.
+ */
+public class ProjectMaterialDeltaRequest {
+    @NotNull
+    private Long materialId;
+
+    private double delta;
+
+    public ProjectMaterialDeltaRequest() {}
+
+    public Long getMaterialId() {
+        return materialId;
+    }
+
+    public void setMaterialId(Long materialId) {
+        this.materialId = materialId;
+    }
+
+    public double getDelta() {
+        return delta;
+    }
+
+    public void setDelta(double delta) {
+        this.delta = delta;
+    }
+}
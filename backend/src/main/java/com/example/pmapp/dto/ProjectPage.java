@@ -0,0 +1,11 @@
+package com.example.pmapp.dto;
+
+import java.util.List;
+
+/**
+ * One page of the project listing or search.  {@code nextCursor} is null
+ * when there are no further projects matching the filter.
+ * {@code truncated} is set by searches that ranked only the newest
+ * matches.
+ */
+public record ProjectPage(List<ProjectResponse> items, String nextCursor, boolean truncated) {}
@@ -1,5 +1,7 @@
 package com.example.pmapp.dto;
 
+import java.time.LocalDateTime;
+
 /**
  * Response DTO for returning project details to the client.  Uses
  * basic string fields for timestamps to avoid leaking internal
@@ -27,6 +29,19 @@ public class ProjectResponse {
         this.finishedAt = finishedAt;
     }
 
+    /**
+     * Constructor used by JPQL constructor expressions; formats the
+     * timestamps the same way as the entity mapping in ProjectService.
+     */
+    public ProjectResponse(Integer id, String username, String name, String description,
+                           LocalDateTime createdAt, LocalDateTime estimatedEnd, LocalDateTime finishedAt) {
+        this(id, username, name, description, format(createdAt), format(estimatedEnd), format(finishedAt));
+    }
+
+    private static String format(LocalDateTime value) {
+        return value != null ? value.toString() : null;
+    }
+
     public Integer getId() {
         return id;
     }
@@ -0,0 +1,42 @@
+package com.example.pmapp.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a ranked search result: the {@code (rank, id)} key of the
+ * last hit on the previous page, and the highest project id the first
+ * page ranked, so that later pages rank the same candidates even while
+ * projects are added.  Like {@link ProjectCursor} it is handed to
+ * clients as an opaque string.
+ */
+public record ProjectSearchCursor(float rank, Integer id, Integer ceiling) {
+
+    public String encode() {
+        String raw = Float.toString(rank) + "|" + id + "|" + ceiling;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor previously produced by {@link #encode()}.  Returns
+     * null for a null or blank value.
+     *
+     * @throws IllegalArgumentException if the value is not a valid cursor
+     */
+    public static ProjectSearchCursor decode(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new ProjectSearchCursor(Float.parseFloat(parts[0]), Integer.valueOf(parts[1]),
+                    Integer.valueOf(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
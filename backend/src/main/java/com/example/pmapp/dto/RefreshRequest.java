@@ -0,0 +1,22 @@
+package com.example.pmapp.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * Request payload for exchanging a refresh token for a new token pair,
+ * or for revoking it on logout.
+ */
+public class RefreshRequest {
+    @NotBlank
+    private String refreshToken;
+
+    public RefreshRequest() {}
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+}
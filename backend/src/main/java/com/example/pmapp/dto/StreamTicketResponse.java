@@ -0,0 +1,7 @@
+package com.example.pmapp.dto;
+
+/**
+ * A single-use ticket for opening {@code GET /api/events?ticket=...},
+ * valid for {@code expiresIn} seconds.
+ */
+public record StreamTicketResponse(String ticket, long expiresIn) {}
@@ -0,0 +1,36 @@
+package com.example.pmapp.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the change history for {@code GET /api/sync}: the database
+ * time at which the previous sync read began.  Clients treat the encoded
+ * form as an opaque string and pass it back as the "since" parameter.
+ */
+public record SyncCursor(LocalDateTime at) {
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(at.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor previously produced by {@link #encode()}.  Returns
+     * null for a null or blank value.
+     *
+     * @throws IllegalArgumentException if the value is not a valid cursor
+     */
+    public static SyncCursor decode(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            return new SyncCursor(LocalDateTime.parse(raw));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
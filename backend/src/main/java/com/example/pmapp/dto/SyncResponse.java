@@ -0,0 +1,29 @@
+package com.example.pmapp.dto;
+
+import java.util.List;
+
+/**
+ * Result of {@code GET /api/sync}: the ids written or deleted since the
+ * given cursor, and the cursor for the next call.  When {@code reset} is
+ * true the lists are empty and the client must reload everything through
+ * the regular endpoints, then continue from {@code cursor}.  Ids may be
+ * repeated by the next call; applying them is idempotent.
+ */
+public record SyncResponse(String cursor,
+                           boolean reset,
+                           Changes<Integer> projects,
+                           Changes<Link> projectMaterials,
+                           Changes<Long> materials) {
+
+    public record Changes<T>(List<T> changed, List<T> deleted) {}
+
+    /** A project material and the project it belongs to. */
+    public record Link(Integer id, Integer projectId) {}
+
+    public static SyncResponse reset(String cursor) {
+        return new SyncResponse(cursor, true,
+                new Changes<>(List.of(), List.of()),
+                new Changes<>(List.of(), List.of()),
+                new Changes<>(List.of(), List.of()));
+    }
+}
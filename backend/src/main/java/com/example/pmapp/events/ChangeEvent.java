@@ -0,0 +1,9 @@
+package com.example.pmapp.events;
+
+/**
+ * A committed change to a project or its materials, ready to be streamed.
+ * {@code ownerId} decides who may receive it (the owner and admins, as in
+ * {@code ProjectMaterialService.authorize}); {@code json} is the message
+ * body sent to clients and {@code type} its SSE event name.
+ */
+public record ChangeEvent(String type, Integer ownerId, String json) {}
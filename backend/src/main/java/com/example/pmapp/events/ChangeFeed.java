@@ -0,0 +1,139 @@
+package com.example.pmapp.events;
+
+import com.example.pmapp.dto.ProjectMaterialResponse;
+import com.example.pmapp.dto.ProjectResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Publishes project and project-material changes to the event stream
+ * ({@code GET /api/events}).  Works like {@code InvalidationBus}: the
+ * change is sent with {@code pg_notify}, which PostgreSQL only delivers
+ * to other nodes once the transaction commits, and handed to this node's
+ * {@link EventStreamHub} from an after-commit callback, so clients never
+ * hear about a change that was rolled back.
+ */
+@Component
+public class ChangeFeed {
+    // pg_notify rejects payloads of 8000 bytes or more
+    private static final int MAX_NOTIFY_BYTES = 7900;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher events;
+    private final ObjectMapper objectMapper;
+    private final String channel;
+    private final boolean enabled;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public ChangeFeed(JdbcTemplate jdbcTemplate,
+                      ApplicationEventPublisher events,
+                      ObjectMapper objectMapper,
+                      @Value("${app.events.channel:pmapp_change_feed}") String channel,
+                      @Value("${app.cache.invalidation.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.events = events;
+        this.objectMapper = objectMapper;
+        this.channel = channel;
+        this.enabled = enabled;
+    }
+
+    public void projectCreated(Integer ownerId, ProjectResponse project) {
+        publish("project.created", ownerId, project.getId(), "project", project);
+    }
+
+    public void projectUpdated(Integer ownerId, ProjectResponse project) {
+        publish("project.updated", ownerId, project.getId(), "project", project);
+    }
+
+    public void projectDeleted(Integer ownerId, Integer projectId) {
+        publish("project.deleted", ownerId, projectId, null, null);
+    }
+
+    public void projectMaterialUpserted(Integer ownerId, Integer projectId, ProjectMaterialResponse link) {
+        publish("project-material.upserted", ownerId, projectId, "projectMaterial", link);
+    }
+
+    public void projectMaterialDeleted(Integer ownerId, Integer projectId, Integer projectMaterialId) {
+        publish("project-material.deleted", ownerId, projectId, "projectMaterialId", projectMaterialId);
+    }
+
+    /** Many links of one project changed at once; clients reload that project's materials. */
+    public void projectMaterialsChanged(Integer ownerId, Integer projectId) {
+        publish("project-materials.changed", ownerId, projectId, null, null);
+    }
+
+    public String channel() {
+        return channel;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Whether a notification payload was sent by this node, which has already delivered it. */
+    public boolean isOwn(String payload) {
+        return payload.startsWith(nodeId + "|");
+    }
+
+    /** Parse a notification payload, or return null if it is malformed. */
+    public static ChangeEvent decode(String payload) {
+        String[] parts = payload.split("\\|", 4);
+        if (parts.length != 4) {
+            return null;
+        }
+        try {
+            return new ChangeEvent(parts[2], Integer.valueOf(parts[1]), parts[3]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void publish(String type, Integer ownerId, Integer projectId, String field, Object value) {
+        String json = render(type, projectId, field, value);
+        String payload = nodeId + "|" + ownerId + "|" + type + "|" + json;
+        if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_NOTIFY_BYTES) {
+            // Too big to relay: send the ids only and let clients fetch the rest
+            json = render(type, projectId, null, null);
+            payload = nodeId + "|" + ownerId + "|" + type + "|" + json;
+        }
+        ChangeEvent event = new ChangeEvent(type, ownerId, json);
+        if (enabled) {
+            jdbcTemplate.queryForList("select pg_notify(?, ?)", channel, payload);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    events.publishEvent(event);
+                }
+            });
+        } else {
+            events.publishEvent(event);
+        }
+    }
+
+    private String render(String type, Integer projectId, String field, Object value) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("type", type);
+        message.put("projectId", projectId);
+        if (field != null) {
+            message.put(field, value);
+        }
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize change event", e);
+        }
+    }
+}
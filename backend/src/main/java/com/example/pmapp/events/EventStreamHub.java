@@ -0,0 +1,228 @@
+package com.example.pmapp.events;
+
+import com.example.pmapp.cache.CacheInvalidationEvent;
+import com.example.pmapp.cache.CacheRegion;
+import com.example.pmapp.model.Role;
+import com.example.pmapp.security.AuthenticatedUser;
+import com.example.pmapp.security.TokenRevocationList;
+import com.example.pmapp.security.VerifiedToken;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the open {@code GET /api/events} streams and fans committed
+ * {@link ChangeEvent}s out to them.  Streams are asynchronous servlet
+ * responses, so an idle subscriber costs a socket and a small map entry,
+ * not a thread.  Delivery runs on a small dispatcher pool; each event
+ * goes only to the subscribers of its owner and to admins, found by map
+ * lookup rather than by scanning every connection.  A periodic comment
+ * line keeps proxies from closing idle streams and reveals dead ones.
+ *
+ * A stream lives no longer than the access token it was opened with: it
+ * times out when the token expires, at the latest after
+ * {@code app.events.stream-timeout}, and is closed as soon as the token
+ * is revoked (logout, password or username change) or the user changes,
+ * on any node.  The client then reconnects with a fresh token, or not.
+ */
+@Component
+public class EventStreamHub implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(EventStreamHub.class);
+
+    private final ConcurrentHashMap<Integer, Set<SseEmitter>> byOwner = new ConcurrentHashMap<>();
+    private final Set<SseEmitter> admins = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<SseEmitter, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final TokenRevocationList revocations;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final int maxConnections;
+    private final Duration streamTimeout;
+    private final Duration heartbeatInterval;
+    private final int dispatcherThreads;
+
+    private volatile boolean running;
+    private ExecutorService dispatcher;
+    private ScheduledExecutorService heartbeat;
+
+    public EventStreamHub(TokenRevocationList revocations,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.events.max-connections:10000}") int maxConnections,
+                          @Value("${app.events.stream-timeout:30m}") Duration streamTimeout,
+                          @Value("${app.events.heartbeat-interval:25s}") Duration heartbeatInterval,
+                          @Value("${app.events.dispatcher-threads:2}") int dispatcherThreads) {
+        this.revocations = revocations;
+        this.maxConnections = maxConnections;
+        this.streamTimeout = streamTimeout;
+        this.heartbeatInterval = heartbeatInterval;
+        this.dispatcherThreads = dispatcherThreads;
+        Gauge.builder("pmapp.events.connections", connections, AtomicInteger::get)
+                .description("Open change-feed streams")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Open a stream for the caller, authenticated with the given access
+     * token, or return null when the node already holds its maximum
+     * number of streams.
+     */
+    public SseEmitter subscribe(AuthenticatedUser caller, VerifiedToken token) {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            return null;
+        }
+        long untilExpiry = token.expiresAtMillis() - System.currentTimeMillis();
+        SseEmitter emitter = new SseEmitter(Math.max(1, Math.min(streamTimeout.toMillis(), untilExpiry)));
+        subscriptions.put(emitter, new Subscription(caller.getId(), token));
+        boolean admin = caller.getRole() == Role.ADMIN;
+        if (admin) {
+            admins.add(emitter);
+        } else {
+            // Add inside compute() so a concurrent remove() cannot drop the group under us
+            byOwner.compute(caller.getId(), (id, group) -> {
+                Set<SseEmitter> members = group != null ? group : ConcurrentHashMap.newKeySet();
+                members.add(emitter);
+                return members;
+            });
+        }
+        AtomicBoolean closed = new AtomicBoolean();
+        Runnable remove = () -> {
+            if (closed.compareAndSet(false, true)) {
+                remove(admin, caller.getId(), emitter);
+            }
+        };
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        return emitter;
+    }
+
+    /**
+     * Close the streams whose token has just been revoked, and every
+     * stream of a user whose account changed.  Runs after
+     * {@link TokenRevocationList} has applied the same invalidation.
+     */
+    @EventListener
+    public void onInvalidation(CacheInvalidationEvent event) {
+        Integer changedUser = null;
+        if (event.region() == CacheRegion.USERS && !event.isRegionWide()) {
+            try {
+                changedUser = Integer.valueOf(event.key());
+            } catch (NumberFormatException e) {
+                // Not a user id; the revocation check below still applies
+            }
+        }
+        if (changedUser == null && !event.appliesTo(CacheRegion.TOKEN_REVOCATIONS)) {
+            return;
+        }
+        Integer userId = changedUser;
+        subscriptions.forEach((emitter, subscription) -> {
+            VerifiedToken token = subscription.token();
+            if (subscription.userId().equals(userId)
+                    || revocations.isRevoked(token.jti(), subscription.userId(), token.issuedAtMillis())) {
+                emitter.complete();
+            }
+        });
+    }
+
+    @EventListener
+    public void onChange(ChangeEvent event) {
+        if (!running) {
+            return;
+        }
+        dispatcher.execute(() -> deliver(event));
+    }
+
+    @Override
+    public void start() {
+        if (running) {
+            return;
+        }
+        CustomizableThreadFactory dispatcherThreadFactory = new CustomizableThreadFactory("event-stream-");
+        dispatcherThreadFactory.setDaemon(true);
+        dispatcher = Executors.newFixedThreadPool(dispatcherThreads, dispatcherThreadFactory);
+        CustomizableThreadFactory heartbeatThreadFactory = new CustomizableThreadFactory("event-stream-heartbeat-");
+        heartbeatThreadFactory.setDaemon(true);
+        heartbeat = Executors.newSingleThreadScheduledExecutor(heartbeatThreadFactory);
+        long intervalMs = heartbeatInterval.toMillis();
+        heartbeat.scheduleWithFixedDelay(this::sendHeartbeat, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        heartbeat.shutdownNow();
+        dispatcher.shutdownNow();
+        // Close the streams so clients reconnect to another node right away
+        admins.forEach(SseEmitter::complete);
+        byOwner.values().forEach(group -> group.forEach(SseEmitter::complete));
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void deliver(ChangeEvent event) {
+        Set<ResponseBodyEmitter.DataWithMediaType> frame = SseEmitter.event()
+                .name(event.type())
+                .data(event.json(), MediaType.APPLICATION_JSON)
+                .build();
+        Set<SseEmitter> owners = byOwner.get(event.ownerId());
+        if (owners != null) {
+            owners.forEach(emitter -> send(emitter, frame));
+        }
+        admins.forEach(emitter -> send(emitter, frame));
+    }
+
+    private void sendHeartbeat() {
+        Set<ResponseBodyEmitter.DataWithMediaType> frame = SseEmitter.event().comment("keep-alive").build();
+        admins.forEach(emitter -> send(emitter, frame));
+        byOwner.values().forEach(group -> group.forEach(emitter -> send(emitter, frame)));
+    }
+
+    private void send(SseEmitter emitter, Set<ResponseBodyEmitter.DataWithMediaType> frame) {
+        try {
+            emitter.send(frame);
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; completing fires the onCompletion callback that unregisters it
+            log.debug("Dropping event stream: {}", e.getMessage());
+            emitter.complete();
+        }
+    }
+
+    private void remove(boolean admin, Integer userId, SseEmitter emitter) {
+        subscriptions.remove(emitter);
+        if (admin) {
+            admins.remove(emitter);
+        } else {
+            byOwner.computeIfPresent(userId, (id, group) -> {
+                group.remove(emitter);
+                return group.isEmpty() ? null : group;
+            });
+        }
+        connections.decrementAndGet();
+    }
+
+    /** Who opened a stream, and with which access token. */
+    private record Subscription(Integer userId, VerifiedToken token) {}
+}
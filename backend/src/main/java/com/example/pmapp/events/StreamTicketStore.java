@@ -0,0 +1,87 @@
+package com.example.pmapp.events;
+
+import com.example.pmapp.security.VerifiedToken;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Single-use tickets for opening {@code GET /api/events}.  Browsers'
+ * EventSource cannot send an Authorization header, and an access token
+ * in the URL would end up in proxy and access logs, so clients first
+ * exchange their bearer token for a ticket and put that in the URL
+ * instead.  A ticket is good for one stream and for
+ * {@code app.events.ticket-ttl}; what ends up in a log is useless.
+ *
+ * Tickets live in the {@code stream_tickets} table, stored only as their
+ * SHA-256 hash, so the stream may be opened on any node.  Each ticket
+ * remembers the access token it was issued for, so that the stream
+ * still ends when that token expires or is revoked.
+ */
+@Component
+public class StreamTicketStore {
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+
+    public StreamTicketStore(JdbcTemplate jdbcTemplate,
+                             @Value("${app.events.ticket-ttl:30s}") Duration ttl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    /** Issue a ticket for the given user and the access token they authenticated with. */
+    public String issue(Integer userId, VerifiedToken token) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String ticket = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        // Unredeemed tickets are only ever useful for a few seconds
+        jdbcTemplate.update("delete from stream_tickets where expires_at < now()");
+        jdbcTemplate.update("insert into stream_tickets"
+                        + " (ticket_hash, user_id, jti, token_issued_at, token_expires_at, expires_at)"
+                        + " values (?, ?, ?, ?, ?, now() + make_interval(secs => ?))",
+                hash(ticket), userId, token.jti(), token.issuedAtMillis(), token.expiresAtMillis(),
+                ttl.toMillis() / 1000.0);
+        return ticket;
+    }
+
+    /**
+     * Redeem a ticket, which deletes it.  Returns null for an unknown,
+     * already used or expired ticket.
+     */
+    public Redeemed redeem(String ticket) {
+        List<Redeemed> rows = jdbcTemplate.query("delete from stream_tickets"
+                        + " where ticket_hash = ? and expires_at > now()"
+                        + " returning user_id, jti, token_issued_at, token_expires_at",
+                (rs, i) -> new Redeemed(rs.getInt(1),
+                        new VerifiedToken(rs.getString(2), rs.getLong(3), rs.getLong(4))),
+                hash(ticket));
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private static String hash(String ticket) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(ticket.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /** The user a redeemed ticket was issued to and the token it was issued for. */
+    public record Redeemed(Integer userId, VerifiedToken token) {}
+}
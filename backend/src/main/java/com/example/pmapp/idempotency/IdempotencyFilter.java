@@ -0,0 +1,205 @@
+package com.example.pmapp.idempotency;
+
+import com.example.pmapp.security.AuthenticatedUser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * {@code Idempotency-Key} support for the create and upsert endpoints
+ * listed in {@code app.idempotency.routes}, so that clients can retry
+ * after a timeout without creating a second project or running the
+ * upsert again.
+ *
+ * The first request with a key runs normally and its response (status,
+ * content type and body) is stored by {@link IdempotencyStore}.  Retries
+ * with the same key, method, path and body get that response replayed,
+ * marked with {@code Idempotent-Replayed: true}, without reaching the
+ * controller; a retry that arrives while the first request is still
+ * running waits for it.  Reusing a key for a different request is
+ * refused with {@code 422}, and a first request that is still running
+ * after the wait timeout gives {@code 409} with {@code Retry-After}.
+ * Keys are scoped per user.  Requests without the header are untouched.
+ *
+ * Publishes {@code pmapp.idempotency.replayed}.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore store;
+    private final List<Route> routes;
+    private final int maxRequestBytes;
+    private final Counter replayed;
+
+    public IdempotencyFilter(IdempotencyStore store,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.idempotency.routes:POST /api/projects,POST /api/projects/*/materials}") List<String> routes,
+                             @Value("${app.idempotency.max-request-bytes:65536}") int maxRequestBytes) {
+        this.store = store;
+        this.routes = new ArrayList<>();
+        for (String spec : routes) {
+            if (!spec.isBlank()) {
+                this.routes.add(Route.parse(spec.trim()));
+            }
+        }
+        this.maxRequestBytes = maxRequestBytes;
+        this.replayed = Counter.builder("pmapp.idempotency.replayed")
+                .description("Requests answered with the stored response of an earlier request with the same key")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (request.getHeader(IDEMPOTENCY_KEY_HEADER) == null) {
+            return true;
+        }
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        return routes.stream().noneMatch(route -> route.matches(request.getMethod(), path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Integer userId = currentUserId();
+        if (userId == null) {
+            // Unauthenticated; let the security chain answer
+            filterChain.doFilter(request, response);
+            return;
+        }
+        String key = request.getHeader(IDEMPOTENCY_KEY_HEADER).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Invalid " + IDEMPOTENCY_KEY_HEADER);
+            return;
+        }
+        byte[] body = readBody(request);
+        if (body == null) {
+            response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value());
+            return;
+        }
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request, body);
+
+        IdempotencyStore.Outcome outcome = store.begin(new IdempotencyStore.Key(userId, key),
+                fingerprint(request, body));
+        if (outcome instanceof IdempotencyStore.Outcome.Replay replay) {
+            replayed.increment();
+            write(response, replay.response());
+        } else if (outcome instanceof IdempotencyStore.Outcome.Mismatch) {
+            response.sendError(HttpStatus.UNPROCESSABLE_ENTITY.value(),
+                    IDEMPOTENCY_KEY_HEADER + " was already used for a different request");
+        } else if (outcome instanceof IdempotencyStore.Outcome.Busy) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.CONFLICT.value(), "A request with this " + IDEMPOTENCY_KEY_HEADER
+                    + " is still in progress");
+        } else if (outcome instanceof IdempotencyStore.Outcome.Execute execute) {
+            execute(cachedRequest, response, filterChain, execute.claim());
+        }
+    }
+
+    private void execute(CachedBodyRequest request, HttpServletResponse response, FilterChain filterChain,
+                         IdempotencyStore.Claim claim) throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        StoredResponse result;
+        try {
+            filterChain.doFilter(request, wrapper);
+            result = new StoredResponse(wrapper.getStatus(), wrapper.getContentType(), wrapper.getContentAsByteArray());
+        } catch (ServletException | IOException | RuntimeException e) {
+            store.abandon(claim);
+            throw e;
+        }
+        try {
+            store.complete(claim, result);
+        } catch (RuntimeException e) {
+            store.abandon(claim);
+            logger.warn("Could not store response for " + IDEMPOTENCY_KEY_HEADER, e);
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private static void write(HttpServletResponse response, StoredResponse stored) throws IOException {
+        response.setStatus(stored.status());
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        byte[] body = stored.body() != null ? stored.body() : new byte[0];
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /** The request body, or null if it is larger than {@code app.idempotency.max-request-bytes}. */
+    private byte[] readBody(HttpServletRequest request) throws IOException {
+        if (request.getContentLengthLong() > maxRequestBytes) {
+            return null;
+        }
+        try (InputStream in = request.getInputStream()) {
+            byte[] body = in.readNBytes(maxRequestBytes + 1);
+            return body.length > maxRequestBytes ? null : body;
+        }
+    }
+
+    /** SHA-256 over method, path and body: a retry must be the same request, not just reuse the key. */
+    private static String fingerprint(HttpServletRequest request, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((request.getMethod() + ' ' + request.getRequestURI() + '\n').getBytes(StandardCharsets.UTF_8));
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static Integer currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user.getId();
+        }
+        return null;
+    }
+
+    /** An endpoint that honours the header: HTTP method and path pattern. */
+    private record Route(String method, PathPattern pattern) {
+
+        boolean matches(String requestMethod, PathContainer path) {
+            return method.equalsIgnoreCase(requestMethod) && pattern.matches(path);
+        }
+
+        /** Parse {@code METHOD /path/pattern}. */
+        static Route parse(String spec) {
+            int space = spec.indexOf(' ');
+            if (space <= 0) {
+                throw new IllegalArgumentException("Invalid idempotency route '" + spec + "': expected METHOD /path");
+            }
+            return new Route(spec.substring(0, space).toUpperCase(Locale.ROOT),
+                    PathPatternParser.defaultInstance.parse(spec.substring(space + 1).trim()));
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.example.pmapp.idempotency;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the first response for each {@code (user, Idempotency-Key)}.
+ *
+ * A bounded in-memory map holds recent keys, both completed ones and
+ * ones whose first request is still running; duplicates on this node
+ * wait on the running request's future instead of executing again.
+ * The {@code idempotency_keys} table (see schema.sql) makes the same
+ * guarantee across nodes and restarts: the first request inserts a
+ * pending row, and duplicates elsewhere poll it until the response is
+ * stored.  The pending row carries its owner and a lease of
+ * {@code app.idempotency.lease}, which the owner renews every third of
+ * the lease for as long as the request runs.  Only a row whose lease ran
+ * out, because its node died, is taken over, and only by a request with
+ * the same fingerprint; a slow request is never run twice.  Keys expire
+ * after {@code app.idempotency.ttl}.  Only successful responses are
+ * stored; after any other outcome the key can be used again.
+ */
+@Component
+public class IdempotencyStore implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+    private static final long POLL_INTERVAL_MS = 50;
+    private static final long PURGE_INTERVAL_MS = Duration.ofHours(1).toMillis();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+    private final Duration waitTimeout;
+    private final Duration lease;
+    private final int maxEntries;
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    /** Claims whose request is running on this node; their leases are renewed. */
+    private final Set<Claim> held = ConcurrentHashMap.newKeySet();
+    private final AtomicLong nextPurge = new AtomicLong();
+
+    private volatile boolean running;
+    private ScheduledExecutorService heartbeat;
+
+    public IdempotencyStore(JdbcTemplate jdbcTemplate,
+                            @Value("${app.idempotency.ttl:24h}") Duration ttl,
+                            @Value("${app.idempotency.wait-timeout:10s}") Duration waitTimeout,
+                            @Value("${app.idempotency.lease:30s}") Duration lease,
+                            @Value("${app.idempotency.cache.max-entries:10000}") int maxEntries) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.lease = lease;
+        this.maxEntries = maxEntries;
+    }
+
+    public record Key(Integer userId, String idempotencyKey) {}
+
+    /** What to do with a request carrying an idempotency key. */
+    public sealed interface Outcome {
+        /** First request with this key: run it, then call {@link #complete} or {@link #abandon}. */
+        record Execute(Claim claim) implements Outcome {}
+        /** Already answered: send the stored response. */
+        record Replay(StoredResponse response) implements Outcome {}
+        /** The key was used for a different request. */
+        record Mismatch() implements Outcome {}
+        /** The first request is still running after the wait timeout. */
+        record Busy() implements Outcome {}
+    }
+
+    /** Ownership of a key by the request that runs first. */
+    public static final class Claim {
+        private final Key key;
+        private final Entry entry;
+        private final UUID owner = UUID.randomUUID();
+
+        private Claim(Key key, Entry entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * Decide how to handle a request with the given key and request
+     * fingerprint, waiting up to the wait timeout if the same request is
+     * already running here or on another node.
+     */
+    public Outcome begin(Key key, String fingerprint) {
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        while (true) {
+            long now = System.currentTimeMillis();
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt() <= now) {
+                entries.remove(key, entry);
+                continue;
+            }
+            if (entry == null) {
+                Entry mine = new Entry(fingerprint, new CompletableFuture<>(), now + ttl.toMillis());
+                if (entries.putIfAbsent(key, mine) != null) {
+                    continue;
+                }
+                if (entries.size() > maxEntries) {
+                    evict();
+                }
+                return claim(key, mine, deadline);
+            }
+            if (!entry.fingerprint().equals(fingerprint)) {
+                return new Outcome.Mismatch();
+            }
+            StoredResponse response;
+            try {
+                response = entry.result().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                return new Outcome.Busy();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new Outcome.Busy();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Unexpected idempotency failure", e.getCause());
+            }
+            if (response != null) {
+                return new Outcome.Replay(response);
+            }
+            // The first request gave up its claim; try to take it over
+        }
+    }
+
+    /**
+     * Record the response of a claimed request and hand it to the
+     * requests waiting on it.  Only successful responses are kept.
+     */
+    public void complete(Claim claim, StoredResponse response) {
+        if (response.isSuccessful()) {
+            held.remove(claim);
+            jdbcTemplate.update("update idempotency_keys set status = ?, content_type = ?, body = ?"
+                            + " where user_id = ? and idempotency_key = ? and owner = ?",
+                    response.status(), response.contentType(), response.body(),
+                    claim.key.userId(), claim.key.idempotencyKey(), claim.owner);
+            claim.entry.result().complete(response);
+        } else {
+            release(claim);
+            // Concurrent duplicates of a failed request fail the same way
+            claim.entry.result().complete(response);
+        }
+    }
+
+    /** Give up a claim after the request failed without a response; a retry may run it again. */
+    public void abandon(Claim claim) {
+        release(claim);
+        claim.entry.result().complete(null);
+    }
+
+    private void release(Claim claim) {
+        held.remove(claim);
+        entries.remove(claim.key, claim.entry);
+        jdbcTemplate.update("delete from idempotency_keys"
+                        + " where user_id = ? and idempotency_key = ? and status is null and owner = ?",
+                claim.key.userId(), claim.key.idempotencyKey(), claim.owner);
+    }
+
+    @Override
+    public void start() {
+        if (running) {
+            return;
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("idempotency-heartbeat-");
+        threadFactory.setDaemon(true);
+        heartbeat = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long intervalMs = Math.max(1, lease.toMillis() / 3);
+        heartbeat.scheduleWithFixedDelay(this::renewLeases, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** Extend the lease of every request still running here, so no other node takes it over. */
+    private void renewLeases() {
+        if (held.isEmpty()) {
+            return;
+        }
+        try {
+            List<Object[]> args = held.stream()
+                    .map(c -> new Object[] {leaseSeconds(), c.key.userId(), c.key.idempotencyKey(), c.owner})
+                    .toList();
+            jdbcTemplate.batchUpdate("update idempotency_keys set locked_until = now() + make_interval(secs => ?)"
+                    + " where user_id = ? and idempotency_key = ? and owner = ? and status is null", args);
+        } catch (RuntimeException e) {
+            log.warn("Could not renew idempotency leases", e);
+        }
+    }
+
+    private double leaseSeconds() {
+        return lease.toMillis() / 1000.0;
+    }
+
+    /**
+     * Having won the key on this node, win it in the table too, or find
+     * the response (or the running request) another node has for it.
+     */
+    private Outcome claim(Key key, Entry mine, long deadline) {
+        try {
+            purgeExpired();
+            long ttlSeconds = Math.max(1, ttl.toSeconds());
+            Claim claim = new Claim(key, mine);
+            while (true) {
+                int inserted = jdbcTemplate.update("insert into idempotency_keys"
+                                + " (user_id, idempotency_key, fingerprint, created_at, expires_at, owner, locked_until)"
+                                + " values (?, ?, ?, now(), now() + make_interval(secs => ?), ?,"
+                                + " now() + make_interval(secs => ?))"
+                                + " on conflict do nothing",
+                        key.userId(), key.idempotencyKey(), mine.fingerprint(), ttlSeconds, claim.owner, leaseSeconds());
+                if (inserted == 1) {
+                    held.add(claim);
+                    return new Outcome.Execute(claim);
+                }
+                int expired = jdbcTemplate.update("delete from idempotency_keys"
+                                + " where user_id = ? and idempotency_key = ? and expires_at < now()",
+                        key.userId(), key.idempotencyKey());
+                if (expired == 1) {
+                    continue;
+                }
+                // A pending row whose lease ran out belongs to a request that died with its node.
+                // Rows from before leases existed have none; their lease counts from created_at.
+                int takenOver = jdbcTemplate.update("update idempotency_keys"
+                                + " set owner = ?, locked_until = now() + make_interval(secs => ?)"
+                                + " where user_id = ? and idempotency_key = ? and status is null and fingerprint = ?"
+                                + " and coalesce(locked_until, created_at + make_interval(secs => ?)) < now()",
+                        claim.owner, leaseSeconds(), key.userId(), key.idempotencyKey(), mine.fingerprint(),
+                        leaseSeconds());
+                if (takenOver == 1) {
+                    held.add(claim);
+                    return new Outcome.Execute(claim);
+                }
+                List<Row> rows = jdbcTemplate.query("select fingerprint, status, content_type, body"
+                                + " from idempotency_keys where user_id = ? and idempotency_key = ?",
+                        (rs, rowNum) -> new Row(rs.getString("fingerprint"), (Integer) rs.getObject("status"),
+                                rs.getString("content_type"), rs.getBytes("body")),
+                        key.userId(), key.idempotencyKey());
+                if (rows.isEmpty()) {
+                    continue;
+                }
+                Row row = rows.get(0);
+                if (!row.fingerprint().equals(mine.fingerprint())) {
+                    giveUp(key, mine);
+                    return new Outcome.Mismatch();
+                }
+                if (row.status() != null) {
+                    StoredResponse response = new StoredResponse(row.status(), row.contentType(), row.body());
+                    mine.result().complete(response);
+                    return new Outcome.Replay(response);
+                }
+                if (System.nanoTime() >= deadline) {
+                    giveUp(key, mine);
+                    return new Outcome.Busy();
+                }
+                Thread.sleep(POLL_INTERVAL_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            giveUp(key, mine);
+            return new Outcome.Busy();
+        } catch (RuntimeException e) {
+            giveUp(key, mine);
+            throw e;
+        }
+    }
+
+    private void giveUp(Key key, Entry mine) {
+        entries.remove(key, mine);
+        mine.result().complete(null);
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        long due = nextPurge.get();
+        if (now >= due && nextPurge.compareAndSet(due, now + PURGE_INTERVAL_MS)) {
+            jdbcTemplate.update("delete from idempotency_keys where expires_at < now()");
+        }
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        // Never drop a running request's entry, or its duplicates would stop waiting on it
+        entries.values().removeIf(e -> e.expiresAt() <= now && e.result().isDone());
+        // Still full: drop roughly a tenth of the completed entries; the table still has them
+        int toDrop = entries.size() - maxEntries + Math.max(1, maxEntries / 10);
+        Iterator<Entry> it = entries.values().iterator();
+        while (toDrop > 0 && it.hasNext()) {
+            if (it.next().result().isDone()) {
+                it.remove();
+                toDrop--;
+            }
+        }
+    }
+
+    private record Entry(String fingerprint, CompletableFuture<StoredResponse> result, long expiresAt) {}
+
+    private record Row(String fingerprint, Integer status, String contentType, byte[] body) {}
+}
@@ -0,0 +1,9 @@
+package com.example.pmapp.idempotency;
+
+/** The first response to an idempotent request, replayed verbatim to its retries. */
+public record StoredResponse(int status, String contentType, byte[] body) {
+
+    public boolean isSuccessful() {
+        return status >= 200 && status < 300;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.pmapp.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adaptive concurrency limit using additive increase, multiplicative
+ * decrease.  Callers take a slot with {@link #tryAcquire()} and report when
+ * the work started and ended when they give it back.  While the work
+ * finishes within the target latency and the limit is actually being
+ * used, the limit grows by one; as soon as an operation is slower than
+ * the target (or is dropped) the limit shrinks by {@code backoffRatio}.
+ * The limit therefore settles just below the point where queueing starts
+ * to show up in latency, and callers beyond it are turned away
+ * immediately instead of waiting.
+ *
+ * One overload shows up in every request that was in flight at the time,
+ * so the limit shrinks at most once per round trip: slow or dropped work
+ * that started before the last decrease does not shrink it again.
+ */
+public final class AimdLimiter {
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final double backoffRatio;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+    private boolean decreased;
+    private long decreasedAt;
+
+    public AimdLimiter(int initialLimit, int minLimit, int maxLimit, long targetLatencyNanos, double backoffRatio) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= max");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Backoff ratio must be between 0 and 1");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatencyNanos;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Take a slot, or return false without waiting when the limit is
+     * reached.  Every successful call must be paired with exactly one
+     * {@link #release(long, long)} or {@link #releaseDropped(long, long)}.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Give back a slot whose work started at {@code startNanos} and
+     * completed at {@code nowNanos}, both {@link System#nanoTime()} values.
+     */
+    public void release(long startNanos, long nowNanos) {
+        int before = inFlight.getAndDecrement();
+        if (nowNanos - startNanos > targetLatencyNanos) {
+            decrease(startNanos, nowNanos);
+        } else if (before * 2 >= limit) {
+            // Only grow when the current limit is actually being used
+            increase();
+        }
+    }
+
+    /** Give back a slot whose work, started at {@code startNanos}, timed out or failed because of overload. */
+    public void releaseDropped(long startNanos, long nowNanos) {
+        inFlight.decrementAndGet();
+        decrease(startNanos, nowNanos);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void increase() {
+        if (limit < maxLimit) {
+            limit = limit + 1;
+        }
+    }
+
+    private synchronized void decrease(long startNanos, long nowNanos) {
+        if (decreased && startNanos - decreasedAt <= 0) {
+            // Already accounted for by the last decrease
+            return;
+        }
+        limit = Math.max(minLimit, (int) (limit * backoffRatio));
+        decreased = true;
+        decreasedAt = nowNanos;
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.pmapp.limit;
+
+import com.example.pmapp.security.AuthenticatedUser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the work a single user, and all users together, can put on the
+ * application.  Runs in the security chain right after the JWT filter,
+ * so the caller is known.
+ *
+ * Per user, every route has a {@link TokenBucket}: requests beyond its
+ * rate and burst get {@code 429} with {@code Retry-After}.  Routes are
+ * configured in {@code app.rate-limit.routes} as
+ * {@code [METHOD ]/path/pattern=ratePerSecond:burst}, first match wins;
+ * other requests share the default bucket.  Buckets live in a concurrent
+ * map keyed by route and user id and are dropped once refilled when the
+ * map is full.  Anonymous requests (sign-in) are not rate limited here;
+ * password hashing has its own admission control.
+ *
+ * Globally, an {@link AimdLimiter} caps the requests in flight and adapts
+ * the cap to the latency target, so that under overload requests are
+ * refused at once with {@code 503} instead of queueing for connections.
+ * Long-running endpoints listed in {@code app.load-shedding.exclude} are
+ * not counted.
+ *
+ * Publishes {@code pmapp.requests.rate.limited} (tagged by route),
+ * {@code pmapp.requests.rate.buckets}, {@code pmapp.requests.shed},
+ * {@code pmapp.requests.limit} and {@code pmapp.requests.in.flight}.
+ */
+@Component
+public class RequestLimitFilter extends OncePerRequestFilter {
+    private static final String DEFAULT_ROUTE = "default";
+
+    private final boolean rateLimitEnabled;
+    private final List<Route> routes;
+    private final Route defaultRoute;
+    private final int maxBuckets;
+    private final ConcurrentHashMap<BucketKey, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final boolean sheddingEnabled;
+    private final AimdLimiter limiter;
+    private final List<PathPattern> excluded;
+    private final long shedRetryAfterSeconds;
+    private final Counter shed;
+
+    public RequestLimitFilter(MeterRegistry meterRegistry,
+                              @Value("${app.rate-limit.enabled:true}") boolean rateLimitEnabled,
+                              @Value("${app.rate-limit.routes:}") List<String> routes,
+                              @Value("${app.rate-limit.default-rate:50}") double defaultRate,
+                              @Value("${app.rate-limit.default-burst:100}") int defaultBurst,
+                              @Value("${app.rate-limit.max-buckets:100000}") int maxBuckets,
+                              @Value("${app.load-shedding.enabled:true}") boolean sheddingEnabled,
+                              @Value("${app.load-shedding.initial-limit:100}") int initialLimit,
+                              @Value("${app.load-shedding.min-limit:10}") int minLimit,
+                              @Value("${app.load-shedding.max-limit:200}") int maxLimit,
+                              @Value("${app.load-shedding.target-latency:500ms}") Duration targetLatency,
+                              @Value("${app.load-shedding.exclude:}") List<String> excluded,
+                              @Value("${app.load-shedding.retry-after:1s}") Duration retryAfter) {
+        this.rateLimitEnabled = rateLimitEnabled;
+        this.routes = new ArrayList<>();
+        for (String spec : routes) {
+            if (!spec.isBlank()) {
+                this.routes.add(Route.parse(spec.trim(), meterRegistry));
+            }
+        }
+        this.defaultRoute = new Route(DEFAULT_ROUTE, null, null, defaultRate, defaultBurst,
+                rejectedCounter(meterRegistry, DEFAULT_ROUTE));
+        this.maxBuckets = maxBuckets;
+
+        this.sheddingEnabled = sheddingEnabled;
+        this.limiter = new AimdLimiter(initialLimit, minLimit, maxLimit, targetLatency.toNanos(), 0.9);
+        this.excluded = excluded.stream()
+                .filter(p -> !p.isBlank())
+                .map(p -> PathPatternParser.defaultInstance.parse(p.trim()))
+                .toList();
+        this.shedRetryAfterSeconds = Math.max(1, retryAfter.toSeconds());
+
+        Gauge.builder("pmapp.requests.rate.buckets", buckets, ConcurrentHashMap::size)
+                .description("Per-user rate limit buckets held in memory")
+                .register(meterRegistry);
+        Gauge.builder("pmapp.requests.limit", limiter, AimdLimiter::getLimit)
+                .description("Current adaptive limit on requests in flight")
+                .register(meterRegistry);
+        Gauge.builder("pmapp.requests.in.flight", limiter, AimdLimiter::getInFlight)
+                .description("Requests in flight under the adaptive limit")
+                .register(meterRegistry);
+        this.shed = Counter.builder("pmapp.requests.shed")
+                .description("Requests refused with 503 because the adaptive limit was reached")
+                .register(meterRegistry);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry registry, String route) {
+        return Counter.builder("pmapp.requests.rate.limited")
+                .description("Requests refused with 429 by the per-user rate limit")
+                .tag("route", route)
+                .register(registry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+
+        if (rateLimitEnabled) {
+            Integer userId = currentUserId();
+            if (userId != null) {
+                Route route = routeFor(request.getMethod(), path);
+                long waitNanos = bucket(route, userId).tryTake(System.nanoTime());
+                if (waitNanos > 0) {
+                    route.rejected().increment();
+                    reject(response, HttpStatus.TOO_MANY_REQUESTS,
+                            Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L)));
+                    return;
+                }
+            }
+        }
+
+        if (!sheddingEnabled || isExcluded(path)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!limiter.tryAcquire()) {
+            shed.increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, shedRetryAfterSeconds);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limiter.release(start, System.nanoTime());
+        }
+    }
+
+    private static Integer currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user.getId();
+        }
+        return null;
+    }
+
+    private Route routeFor(String method, PathContainer path) {
+        for (Route route : routes) {
+            if (route.matches(method, path)) {
+                return route;
+            }
+        }
+        return defaultRoute;
+    }
+
+    private boolean isExcluded(PathContainer path) {
+        for (PathPattern pattern : excluded) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private TokenBucket bucket(Route route, Integer userId) {
+        BucketKey key = new BucketKey(route.name(), userId);
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxBuckets) {
+            evict();
+        }
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(route.rate(), route.burst(), System.nanoTime()));
+    }
+
+    private void evict() {
+        // A full bucket behaves exactly like a new one, so dropping it loses nothing
+        long now = System.nanoTime();
+        buckets.values().removeIf(b -> b.isFull(now));
+        // Still full: drop roughly a tenth of the buckets to make room
+        int toDrop = buckets.size() - maxBuckets + Math.max(1, maxBuckets / 10);
+        Iterator<BucketKey> it = buckets.keySet().iterator();
+        while (toDrop-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds) {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+    }
+
+    private record BucketKey(String route, Integer userId) {}
+
+    /** A rate-limited route: optional HTTP method, path pattern, and the per-user rate and burst. */
+    private record Route(String name, String method, PathPattern pattern, double rate, int burst, Counter rejected) {
+
+        boolean matches(String requestMethod, PathContainer path) {
+            return (method == null || method.equalsIgnoreCase(requestMethod)) && pattern.matches(path);
+        }
+
+        /** Parse {@code [METHOD ]/path/pattern=ratePerSecond[:burst]}; the burst defaults to the rate. */
+        static Route parse(String spec, MeterRegistry registry) {
+            int eq = spec.lastIndexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Invalid rate limit route '" + spec + "': expected pattern=rate[:burst]");
+            }
+            String target = spec.substring(0, eq).trim();
+            String limit = spec.substring(eq + 1).trim();
+            String method = null;
+            String pattern = target;
+            int space = target.indexOf(' ');
+            if (space > 0) {
+                method = target.substring(0, space).toUpperCase(Locale.ROOT);
+                pattern = target.substring(space + 1).trim();
+            }
+            try {
+                int colon = limit.indexOf(':');
+                double rate = Double.parseDouble(colon < 0 ? limit : limit.substring(0, colon));
+                int burst = colon < 0 ? (int) Math.ceil(rate) : Integer.parseInt(limit.substring(colon + 1));
+                return new Route(target, method, PathPatternParser.defaultInstance.parse(pattern), rate, burst,
+                        rejectedCounter(registry, target));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid rate limit route '" + spec + "'", e);
+            }
+        }
+    }
+}
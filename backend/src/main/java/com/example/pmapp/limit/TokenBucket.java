@@ -0,0 +1,52 @@
+package com.example.pmapp.limit;
+
+/**
+ * Token bucket holding up to {@code capacity} tokens and refilled at
+ * {@code ratePerSecond}.  Each call takes one token; an empty bucket
+ * refuses the call and reports when the next token arrives.  State is
+ * guarded by the bucket's own monitor, so contention is limited to
+ * concurrent requests for the same bucket.
+ */
+public final class TokenBucket {
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long refilledAt;
+
+    public TokenBucket(double ratePerSecond, double capacity, long nowNanos) {
+        if (ratePerSecond <= 0 || capacity < 1) {
+            throw new IllegalArgumentException("Rate must be positive and capacity at least 1");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = ratePerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.refilledAt = nowNanos;
+    }
+
+    /**
+     * Take a token.  Returns 0 on success, otherwise the number of
+     * nanoseconds until one becomes available.
+     */
+    public synchronized long tryTake(long nowNanos) {
+        refill(nowNanos);
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+    }
+
+    /** Whether the bucket has refilled completely, i.e. is indistinguishable from a new one. */
+    public synchronized boolean isFull(long nowNanos) {
+        refill(nowNanos);
+        return tokens >= capacity;
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - refilledAt;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+            refilledAt = nowNanos;
+        }
+    }
+}
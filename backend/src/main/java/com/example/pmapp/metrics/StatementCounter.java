@@ -0,0 +1,30 @@
+package com.example.pmapp.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread, so
+ * {@link StatementCountFilter} can report how many queries each request
+ * issued.  Statements are passed through unchanged.
+ */
+public class StatementCounter implements StatementInspector {
+    private final ThreadLocal<int[]> count = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        count.get()[0]++;
+        return sql;
+    }
+
+    void reset() {
+        count.get()[0] = 0;
+    }
+
+    int current() {
+        return count.get()[0];
+    }
+
+    void clear() {
+        count.remove();
+    }
+}
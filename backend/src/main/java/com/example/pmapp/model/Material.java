@@ -2,10 +2,19 @@ package com.example.pmapp.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "materials")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Material.CACHE_REGION)
 public class Material {
+    /** Second-level cache region; sized in hibernate-caffeine.conf. */
+    public static final String CACHE_REGION = "materials";
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -14,7 +23,8 @@ public class Material {
     @Column(nullable = false, unique = true, length = 120)
     private String name;
 
-    @Column(name = "market_id", nullable = false, unique = true, length = 50)
+    // Unique; schema.sql creates the index uq_materials_market_id the import's merge relies on
+    @Column(name = "market_id", nullable = false, length = 50)
     private String marketId;
 
     @Column(name = "seller", nullable=false, length = 120)
@@ -24,6 +34,11 @@ public class Material {
     @JsonProperty("pictureUrl")            // frontend key = pictureUrl
     private String materialPicture;
 
+    // Last insert or update; the CSV import sets it in SQL
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
     public String getName() { return name; }
@@ -34,4 +49,5 @@ public class Material {
     public void setSeller(String seller) { this.seller = seller; }
     public String getMaterialPicture() { return materialPicture; }
     public void setMaterialPicture(String materialPicture) { this.materialPicture = materialPicture; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
 }
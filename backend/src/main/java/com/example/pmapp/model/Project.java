@@ -1,6 +1,8 @@
 package com.example.pmapp.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
 import java.time.LocalDateTime;
 import java.util.Objects;
 
@@ -8,16 +10,21 @@ import java.util.Objects;
  * Represents a project owned by a user.  Projects can have associated
  * materials (see {@link ProjectMaterial}).  The timestamps follow
  * typical project lifecycle fields such as creation date, estimated
- * completion and final completion.
+ * completion and final completion.  The owner is loaded lazily; read
+ * paths project straight into DTOs and write paths that need the owner
+ * use the {@value #WITH_USER} entity graph.
  */
 @Entity
 @Table(name = "projects")
+@NamedEntityGraph(name = Project.WITH_USER, attributeNodes = @NamedAttributeNode("user"))
 public class Project {
+    public static final String WITH_USER = "Project.withUser";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
 
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
@@ -36,6 +43,11 @@ public class Project {
     @Column(name = "finished_at")
     private LocalDateTime finishedAt;
 
+    /** Last insert or update; drives the delta sync (see schema.sql for the default). */
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
     public Project() {}
 
     public Project(Integer id, User user, String name, String description, LocalDateTime createdAt,
@@ -112,6 +124,10 @@ public class Project {
         this.finishedAt = finishedAt;
     }
 
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -1,31 +1,45 @@
 package com.example.pmapp.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
 import java.util.Objects;
 
 /**
  * Association entity linking projects with the materials they require.
  * An amount specifies how much of a given material is needed for a
- * particular project.
+ * particular project.  Both associations are lazy; use the
+ * {@value #WITH_PROJECT} entity graph when the owning project is needed.
  */
 @Entity
 @Table(name = "project_materials")
+@NamedEntityGraph(name = ProjectMaterial.WITH_PROJECT, attributeNodes = @NamedAttributeNode("project"))
 public class ProjectMaterial {
+    public static final String WITH_PROJECT = "ProjectMaterial.withProject";
+
+    // Pooled sequence rather than IDENTITY so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "project_materials_seq")
+    @SequenceGenerator(name = "project_materials_seq", sequenceName = "project_materials_seq", allocationSize = 50)
     private Integer id;
 
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "project_id")
     private Project project;
 
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "material_id")
     private Material material;
 
     @Column(nullable = false)
     private double amount;
 
+    /** Last insert or update.  The native upserts in ProjectMaterialRepository set it themselves. */
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
     public ProjectMaterial() {}
 
     public ProjectMaterial(Integer id, Project project, Material material, double amount) {
@@ -67,6 +81,10 @@ public class ProjectMaterial {
         this.amount = amount;
     }
 
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,16 @@
+package com.example.pmapp.model;
+
+/**
+ * Lifecycle status of a project.  The status is not stored; it is
+ * derived from the project's timestamps:
+ * <ul>
+ *   <li>FINISHED - {@code finishedAt} is set</li>
+ *   <li>OVERDUE - not finished and {@code estimatedEnd} lies in the past</li>
+ *   <li>OPEN - not finished and not overdue (including no estimate)</li>
+ * </ul>
+ */
+public enum ProjectStatus {
+    OPEN,
+    OVERDUE,
+    FINISHED
+}
@@ -0,0 +1,93 @@
+package com.example.pmapp.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Records that a row was deleted, so that {@code GET /api/sync} can tell
+ * reconnecting clients which ids to drop.  Tombstones are kept for
+ * {@code app.sync.tombstone-retention}; clients whose cursor is older
+ * than that are told to reload everything instead.
+ */
+@Entity
+@Table(name = "sync_tombstones")
+public class SyncTombstone {
+
+    public enum Kind { PROJECT, PROJECT_MATERIAL, MATERIAL }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Kind kind;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    /** Owner of the deleted project or link; null for materials, which everyone sees. */
+    @Column(name = "owner_id")
+    private Integer ownerId;
+
+    /** Project of a deleted link; null for other kinds. */
+    @Column(name = "project_id")
+    private Integer projectId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+
+    public SyncTombstone() {}
+
+    public SyncTombstone(Kind kind, Long entityId, Integer ownerId, Integer projectId) {
+        this.kind = kind;
+        this.entityId = entityId;
+        this.ownerId = ownerId;
+        this.projectId = projectId;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        if (this.deletedAt == null) {
+            this.deletedAt = LocalDateTime.now();
+        }
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public Integer getOwnerId() {
+        return ownerId;
+    }
+
+    public Integer getProjectId() {
+        return projectId;
+    }
+
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SyncTombstone that = (SyncTombstone) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+}
@@ -1,17 +1,28 @@
 package com.example.pmapp.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import java.util.Objects;
 
 /**
  * JPA entity representing an application user.  Users authenticate
  * using a username and password.  Roles provide coarse grained access
  * control.  Passwords are stored hashed and should never be returned
- * to clients.
+ * to clients.  Users are read on nearly every request and rarely
+ * written, so they are kept in the second-level cache.
  */
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
 public class User {
+    /** Second-level cache region for entities; sized in hibernate-caffeine.conf. */
+    public static final String CACHE_REGION = "users";
+    /** Query cache region for lookups by username. */
+    public static final String BY_USERNAME_REGION = "users-by-username";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
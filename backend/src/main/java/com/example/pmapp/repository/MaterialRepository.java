@@ -2,5 +2,34 @@ package com.example.pmapp.repository;
 
 import com.example.pmapp.model.Material;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface MaterialRepository extends JpaRepository<Material, Long> { }
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface MaterialRepository extends JpaRepository<Material, Long> {
+
+    /**
+     * Materials whose name, market id or seller is similar to the given
+     * text (pg_trgm), most similar first.  Each {@code %} test is served by
+     * a trigram GIN index (see schema.sql).
+     */
+    @Query(value = """
+            select m.* from materials m
+            where m.name % :text or m.market_id % :text or m.seller % :text
+            order by greatest(similarity(m.name, :text), similarity(m.market_id, :text),
+                              similarity(m.seller, :text)) desc, m.id
+            limit :limit
+            """, nativeQuery = true)
+    List<Material> findSimilar(@Param("text") String text, @Param("limit") int limit);
+
+    /** Delta sync: ids of materials written after {@code since}, oldest change first. */
+    @Query(value = """
+            select id from materials
+            where updated_at > :since
+            order by updated_at, id
+            limit :limit
+            """, nativeQuery = true)
+    List<Long> findIdsUpdatedSince(@Param("since") LocalDateTime since, @Param("limit") int limit);
+}
@@ -0,0 +1,21 @@
+package com.example.pmapp.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of the project export: a project and its owner, joined with at
+ * most one of its materials.  The material columns are null for a
+ * project without materials.
+ */
+public record ProjectExportRow(Integer projectId,
+                               String username,
+                               String name,
+                               String description,
+                               LocalDateTime createdAt,
+                               LocalDateTime estimatedEnd,
+                               LocalDateTime finishedAt,
+                               Integer projectMaterialId,
+                               Long materialId,
+                               String materialName,
+                               String marketId,
+                               Double amount) {}
@@ -0,0 +1,20 @@
+package com.example.pmapp.repository;
+
+import com.example.pmapp.model.ProjectStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional filters for the project listing.  Every field may be null,
+ * meaning "do not filter on this".  {@code createdFrom} is inclusive and
+ * {@code createdTo} exclusive.
+ */
+public record ProjectFilter(Integer ownerId,
+                            ProjectStatus status,
+                            LocalDateTime createdFrom,
+                            LocalDateTime createdTo) {
+
+    public ProjectFilter withOwnerId(Integer ownerId) {
+        return new ProjectFilter(ownerId, status, createdFrom, createdTo);
+    }
+}
@@ -1,19 +1,147 @@
 package com.example.pmapp.repository;
 
+import com.example.pmapp.dto.ProjectMaterialResponse;
 import com.example.pmapp.model.Material;
 import com.example.pmapp.model.Project;
 import com.example.pmapp.model.ProjectMaterial;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 /**
  * Repository for the association between projects and materials.
+ * A project holds at most one link per material; schema.sql enforces
+ * this with a unique index on {@code (project_id, material_id)}.
  */
 public interface ProjectMaterialRepository extends JpaRepository<ProjectMaterial, Integer> {
     List<ProjectMaterial> findByProject(Project project);
     void deleteByProject(Project project);
 
     Optional<ProjectMaterial> findByProjectAndMaterial(Project project, Material material);
+
+    List<ProjectMaterial> findByProjectIdAndMaterialIdIn(Integer projectId, Collection<Long> materialIds);
+
+    /** Load a link together with its project in one query (write paths). */
+    @EntityGraph(ProjectMaterial.WITH_PROJECT)
+    Optional<ProjectMaterial> findWithProjectById(Integer id);
+
+    /** Read path: the materials of a project projected straight into DTOs. */
+    @Query("select new com.example.pmapp.dto.ProjectMaterialResponse(pm.id, m.id, m.name, m.marketId, pm.amount)"
+            + " from ProjectMaterial pm join pm.material m where pm.project.id = :projectId order by pm.id")
+    List<ProjectMaterialResponse> findResponsesByProjectId(@Param("projectId") Integer projectId);
+
+    /**
+     * Atomically set the amount of a material on a project in a single
+     * statement.  An existing link is updated in place; otherwise a new
+     * row is inserted, with {@code ON CONFLICT} covering a concurrent
+     * insert of the same pair.  The insert only draws an id from the
+     * sequence when no row exists, so repeated upserts do not burn ids.
+     * Returns null, writing nothing, if the project or the material does
+     * not exist; only one deleted concurrently fails with a foreign-key
+     * violation.  Bypasses Hibernate, so {@code updated_at} is set here.
+     */
+    @Query(value = """
+            WITH updated AS (
+                UPDATE project_materials SET amount = :amount, updated_at = localtimestamp
+                WHERE project_id = :projectId AND material_id = :materialId
+                RETURNING id, amount
+            ), inserted AS (
+                INSERT INTO project_materials (id, project_id, material_id, amount, updated_at)
+                SELECT nextval('project_materials_seq'), :projectId, :materialId, :amount, localtimestamp
+                WHERE NOT EXISTS (SELECT 1 FROM updated)
+                  AND EXISTS (SELECT 1 FROM projects WHERE id = :projectId)
+                  AND EXISTS (SELECT 1 FROM materials WHERE id = :materialId)
+                ON CONFLICT (project_id, material_id)
+                    DO UPDATE SET amount = EXCLUDED.amount, updated_at = localtimestamp
+                RETURNING id, amount
+            )
+            SELECT r.id AS "id", m.id AS "materialId", m.name AS "materialName",
+                   m.market_id AS "marketId", r.amount AS "amount"
+            FROM (SELECT id, amount FROM updated UNION ALL SELECT id, amount FROM inserted) r
+            JOIN materials m ON m.id = :materialId
+            """, nativeQuery = true)
+    UpsertedRow upsertAmount(@Param("projectId") Integer projectId,
+                             @Param("materialId") Long materialId,
+                             @Param("amount") double amount);
+
+    /**
+     * Atomically add {@code delta} to the amount of a material on a
+     * project, creating the link if needed.  The result is clamped at
+     * zero.  No read happens before the write, so concurrent increments
+     * are never lost.  A delta of zero or less never creates a link, and
+     * returns null when there is none; so do a missing project or
+     * material, as for {@link #upsertAmount}.
+     */
+    @Query(value = """
+            WITH updated AS (
+                UPDATE project_materials SET amount = GREATEST(amount + :delta, 0), updated_at = localtimestamp
+                WHERE project_id = :projectId AND material_id = :materialId
+                RETURNING id, amount
+            ), inserted AS (
+                INSERT INTO project_materials (id, project_id, material_id, amount, updated_at)
+                SELECT nextval('project_materials_seq'), :projectId, :materialId, :delta, localtimestamp
+                WHERE NOT EXISTS (SELECT 1 FROM updated)
+                  AND :delta > 0
+                  AND EXISTS (SELECT 1 FROM projects WHERE id = :projectId)
+                  AND EXISTS (SELECT 1 FROM materials WHERE id = :materialId)
+                ON CONFLICT (project_id, material_id)
+                    DO UPDATE SET amount = GREATEST(project_materials.amount + :delta, 0),
+                                  updated_at = localtimestamp
+                RETURNING id, amount
+            )
+            SELECT r.id AS "id", m.id AS "materialId", m.name AS "materialName",
+                   m.market_id AS "marketId", r.amount AS "amount"
+            FROM (SELECT id, amount FROM updated UNION ALL SELECT id, amount FROM inserted) r
+            JOIN materials m ON m.id = :materialId
+            """, nativeQuery = true)
+    UpsertedRow addAmount(@Param("projectId") Integer projectId,
+                          @Param("materialId") Long materialId,
+                          @Param("delta") double delta);
+
+    /** Delta sync: links written after {@code since}, oldest change first. */
+    @Query(value = """
+            SELECT id AS "id", project_id AS "projectId" FROM project_materials
+            WHERE updated_at > :since
+            ORDER BY updated_at, id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<LinkRow> findLinksUpdatedSince(@Param("since") LocalDateTime since, @Param("limit") int limit);
+
+    /**
+     * Links of the owner's projects written after {@code since}.  Served
+     * by one {@code (project_id, updated_at)} range scan per project, so
+     * the cost follows the owner's data, not everyone else's changes.
+     */
+    @Query(value = """
+            SELECT pm.id AS "id", pm.project_id AS "projectId"
+            FROM projects p
+            JOIN project_materials pm ON pm.project_id = p.id AND pm.updated_at > :since
+            WHERE p.user_id = :ownerId
+            ORDER BY pm.updated_at, pm.id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<LinkRow> findLinksOfOwnerUpdatedSince(@Param("ownerId") Integer ownerId,
+                                               @Param("since") LocalDateTime since,
+                                               @Param("limit") int limit);
+
+    /** A link and the project it belongs to. */
+    interface LinkRow {
+        Integer getId();
+        Integer getProjectId();
+    }
+
+    /** Row returned by the single-statement upserts. */
+    interface UpsertedRow {
+        Integer getId();
+        Long getMaterialId();
+        String getMaterialName();
+        String getMarketId();
+        Double getAmount();
+    }
 }
@@ -2,15 +2,48 @@ package com.example.pmapp.repository;
 
 import com.example.pmapp.model.Project;
 import com.example.pmapp.model.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository for project entities.  Provides methods to query
- * projects by their owning user.
+ * projects by their owning user and, through {@link ProjectRepositoryCustom},
+ * the filtered keyset-paginated listing.
  */
-public interface ProjectRepository extends JpaRepository<Project, Integer> {
+public interface ProjectRepository extends JpaRepository<Project, Integer>, ProjectRepositoryCustom {
     List<Project> findByUser(User user);
     List<Project> findByUserId(Integer userId);
+
+    /** Load a project together with its owner in one query (write paths). */
+    @EntityGraph(Project.WITH_USER)
+    Optional<Project> findWithUserById(Integer id);
+
+    /** Owner id of a project, for authorization checks that need nothing else. */
+    @Query("select p.user.id from Project p where p.id = :id")
+    Optional<Integer> findOwnerIdById(@Param("id") Integer id);
+
+    /** Delta sync: ids of projects written after {@code since}, oldest change first. */
+    @Query(value = """
+            select id from projects
+            where updated_at > :since
+            order by updated_at, id
+            limit :limit
+            """, nativeQuery = true)
+    List<Integer> findIdsUpdatedSince(@Param("since") LocalDateTime since, @Param("limit") int limit);
+
+    @Query(value = """
+            select id from projects
+            where user_id = :ownerId and updated_at > :since
+            order by updated_at, id
+            limit :limit
+            """, nativeQuery = true)
+    List<Integer> findIdsOfOwnerUpdatedSince(@Param("ownerId") Integer ownerId,
+                                             @Param("since") LocalDateTime since,
+                                             @Param("limit") int limit);
 }
\ No newline at end of file
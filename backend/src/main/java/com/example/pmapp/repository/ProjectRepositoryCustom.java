@@ -0,0 +1,44 @@
+package com.example.pmapp.repository;
+
+import com.example.pmapp.dto.ProjectCursor;
+import com.example.pmapp.dto.ProjectResponse;
+import com.example.pmapp.dto.ProjectSearchCursor;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Project queries that need to be assembled at runtime and therefore
+ * cannot be expressed as derived or annotated repository methods.
+ */
+public interface ProjectRepositoryCustom {
+
+    /**
+     * Return up to {@code limit} projects matching the filter, newest
+     * first, strictly after the given cursor (or from the start when the
+     * cursor is null).  Rows are projected straight into DTOs together
+     * with the owner's username, so a page costs exactly one query.
+     */
+    List<ProjectResponse> findPage(ProjectFilter filter, ProjectCursor after, int limit);
+
+    /**
+     * Every project matching the filter together with its materials, one
+     * row per project material, newest project first.  Rows are read
+     * through a forward-only cursor {@code fetchSize} at a time, so the
+     * stream must be consumed inside a transaction and closed afterwards.
+     */
+    Stream<ProjectExportRow> streamExport(ProjectFilter filter, int fetchSize);
+
+    /**
+     * Full-text search over project names and descriptions, best match
+     * first.  {@code query} uses web search syntax ("quoted phrases",
+     * -excluded words, or).  Only {@code ownerId} is taken from the filter.
+     * Only the newest {@code maxCandidates} matching projects are ranked,
+     * so a term found in most projects costs no more than a rare one.
+     * The candidates are fixed by id: every page after the first ranks
+     * those up to the cursor's ceiling, so pages never skip or repeat
+     * hits, and the result says whether older matches were left out.
+     */
+    ProjectSearchResult search(String query, Integer ownerId, ProjectSearchCursor after, int limit,
+                               int maxCandidates);
+}
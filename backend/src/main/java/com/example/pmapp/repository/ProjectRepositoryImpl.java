@@ -0,0 +1,178 @@
+package com.example.pmapp.repository;
+
+import com.example.pmapp.dto.ProjectCursor;
+import com.example.pmapp.dto.ProjectResponse;
+import com.example.pmapp.dto.ProjectSearchCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of {@link ProjectRepositoryCustom}.  Only the predicates
+ * that are actually requested are added to the query so that PostgreSQL
+ * can pick the matching {@code (created_at, id)} index (see schema.sql)
+ * and stop after {@code limit} rows, whichever page is being read.
+ */
+class ProjectRepositoryImpl implements ProjectRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProjectResponse> findPage(ProjectFilter filter, ProjectCursor after, int limit) {
+        StringBuilder jpql = new StringBuilder(
+                "select new com.example.pmapp.dto.ProjectResponse("
+                        + "p.id, u.username, p.name, p.description, p.createdAt, p.estimatedEnd, p.finishedAt)"
+                        + " from Project p join p.user u where 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+        appendFilter(jpql, params, filter);
+        if (after != null) {
+            // Row-value comparison so the index range scan starts right at the cursor
+            jpql.append(" and (p.createdAt, p.id) < (:cursorCreatedAt, :cursorId)");
+            params.put("cursorCreatedAt", after.createdAt());
+            params.put("cursorId", after.id());
+        }
+        jpql.append(" order by p.createdAt desc, p.id desc");
+
+        TypedQuery<ProjectResponse> query = entityManager.createQuery(jpql.toString(), ProjectResponse.class);
+        params.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public Stream<ProjectExportRow> streamExport(ProjectFilter filter, int fetchSize) {
+        StringBuilder jpql = new StringBuilder(
+                "select new com.example.pmapp.repository.ProjectExportRow("
+                        + "p.id, u.username, p.name, p.description, p.createdAt, p.estimatedEnd, p.finishedAt,"
+                        + " pm.id, m.id, m.name, m.marketId, pm.amount)"
+                        + " from Project p join p.user u"
+                        + " left join ProjectMaterial pm on pm.project = p"
+                        + " left join pm.material m where 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+        appendFilter(jpql, params, filter);
+        // Rows of one project must be adjacent so the caller can group them while streaming
+        jpql.append(" order by p.createdAt desc, p.id desc, pm.id");
+
+        TypedQuery<ProjectExportRow> query = entityManager.createQuery(jpql.toString(), ProjectExportRow.class);
+        params.forEach(query::setParameter);
+        return query
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ProjectSearchResult search(String query, Integer ownerId, ProjectSearchCursor after, int limit,
+                                      int maxCandidates) {
+        // search_vector is a generated tsvector column with a GIN index (see schema.sql).  The
+        // candidates are the newest matches by id; the LIMIT keeps the subquery from being
+        // flattened, so ts_rank runs on at most maxCandidates rows and a scan for a term that
+        // matches most of the table stops early.  One match more than the cap is read to learn
+        // whether any were left out; it is numbered last and not ranked.
+        StringBuilder sql = new StringBuilder(
+                "select * from ("
+                        + " select c.id, u.username, c.name, c.description, c.created_at, c.estimated_end,"
+                        + " c.finished_at, ts_rank(c.search_vector, c.q) as rank,"
+                        + " row_number() over (order by c.id desc) as n, count(*) over () as matched,"
+                        + " max(c.id) over () as ceiling"
+                        + " from ("
+                        + " select p.id, p.user_id, p.name, p.description, p.created_at, p.estimated_end,"
+                        + " p.finished_at, p.search_vector, q"
+                        + " from projects p, websearch_to_tsquery('english', :query) q"
+                        + " where p.search_vector @@ q");
+        Map<String, Object> params = new HashMap<>();
+        params.put("query", query);
+        if (ownerId != null) {
+            sql.append(" and p.user_id = :ownerId");
+            params.put("ownerId", ownerId);
+        }
+        if (after != null) {
+            sql.append(" and p.id <= :ceiling");
+            params.put("ceiling", after.ceiling());
+        }
+        sql.append(" order by p.id desc limit :probe) c join users u on u.id = c.user_id) hit"
+                + " where hit.n <= :maxCandidates");
+        params.put("probe", maxCandidates + 1);
+        params.put("maxCandidates", maxCandidates);
+        if (after != null) {
+            sql.append(" and (hit.rank, hit.id) < (cast(:cursorRank as real), :cursorId)");
+            params.put("cursorRank", after.rank());
+            params.put("cursorId", after.id());
+        }
+        sql.append(" order by hit.rank desc, hit.id desc");
+
+        // The best plan depends on how common the terms are: a scan that stops at maxCandidates for
+        // common ones, the GIN index for rare ones.  A prepared statement soon switches to one
+        // generic plan for every query, so plan each execution in this transaction afresh.
+        entityManager.createNativeQuery("select set_config('plan_cache_mode', 'force_custom_plan', true)")
+                .getSingleResult();
+        Query nativeQuery = entityManager.createNativeQuery(sql.toString());
+        params.forEach(nativeQuery::setParameter);
+        List<Object[]> rows = nativeQuery.setMaxResults(limit).getResultList();
+        List<ProjectSearchHit> hits = new ArrayList<>(rows.size());
+        Integer ceiling = after != null ? after.ceiling() : null;
+        boolean truncated = false;
+        for (Object[] row : rows) {
+            ProjectResponse project = new ProjectResponse(
+                    ((Number) row[0]).intValue(),
+                    (String) row[1],
+                    (String) row[2],
+                    (String) row[3],
+                    toLocalDateTime(row[4]),
+                    toLocalDateTime(row[5]),
+                    toLocalDateTime(row[6]));
+            hits.add(new ProjectSearchHit(project, ((Number) row[7]).floatValue()));
+            truncated = ((Number) row[9]).intValue() > maxCandidates;
+            if (ceiling == null) {
+                ceiling = ((Number) row[10]).intValue();
+            }
+        }
+        return new ProjectSearchResult(hits, ceiling, truncated);
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+
+    private static void appendFilter(StringBuilder jpql, Map<String, Object> params, ProjectFilter filter) {
+        if (filter.ownerId() != null) {
+            jpql.append(" and p.user.id = :ownerId");
+            params.put("ownerId", filter.ownerId());
+        }
+        if (filter.status() != null) {
+            switch (filter.status()) {
+                case FINISHED -> jpql.append(" and p.finishedAt is not null");
+                case OVERDUE -> {
+                    jpql.append(" and p.finishedAt is null and p.estimatedEnd < :now");
+                    params.put("now", LocalDateTime.now());
+                }
+                case OPEN -> {
+                    jpql.append(" and p.finishedAt is null and (p.estimatedEnd is null or p.estimatedEnd >= :now)");
+                    params.put("now", LocalDateTime.now());
+                }
+            }
+        }
+        if (filter.createdFrom() != null) {
+            jpql.append(" and p.createdAt >= :createdFrom");
+            params.put("createdFrom", filter.createdFrom());
+        }
+        if (filter.createdTo() != null) {
+            jpql.append(" and p.createdAt < :createdTo");
+            params.put("createdTo", filter.createdTo());
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.pmapp.repository;
+
+import com.example.pmapp.dto.ProjectResponse;
+
+/**
+ * A project matching a full-text search, with its {@code ts_rank} score.
+ */
+public record ProjectSearchHit(ProjectResponse project, float rank) {}
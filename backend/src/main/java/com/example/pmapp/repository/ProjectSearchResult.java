@@ -0,0 +1,11 @@
+package com.example.pmapp.repository;
+
+import java.util.List;
+
+/**
+ * One page of full-text search hits.  The matches ranked are the newest
+ * {@code maxCandidates} projects with an id up to {@code ceiling}, the
+ * newest candidate of the first page; {@code truncated} is true when
+ * older matches were left out of the ranking.
+ */
+public record ProjectSearchResult(List<ProjectSearchHit> hits, Integer ceiling, boolean truncated) {}
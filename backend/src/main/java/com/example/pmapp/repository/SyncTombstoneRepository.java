@@ -0,0 +1,44 @@
+package com.example.pmapp.repository;
+
+import com.example.pmapp.model.SyncTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Deletions for the delta sync.  Both reads are range scans on an index
+ * ending in {@code deleted_at} (see schema.sql).
+ */
+public interface SyncTombstoneRepository extends JpaRepository<SyncTombstone, Long> {
+
+    /** The database clock; sync cursors are taken from it so that app-node clocks do not matter. */
+    @Query(value = "select localtimestamp", nativeQuery = true)
+    LocalDateTime currentTimestamp();
+
+    @Query(value = """
+            select * from sync_tombstones
+            where deleted_at > :since
+            order by deleted_at, id
+            limit :limit
+            """, nativeQuery = true)
+    List<SyncTombstone> findSince(@Param("since") LocalDateTime since, @Param("limit") int limit);
+
+    /** Deletions of the owner's projects and links, plus material deletions (no owner). */
+    @Query(value = """
+            select * from sync_tombstones
+            where (owner_id = :ownerId or owner_id is null) and deleted_at > :since
+            order by deleted_at, id
+            limit :limit
+            """, nativeQuery = true)
+    List<SyncTombstone> findSinceForOwner(@Param("ownerId") Integer ownerId,
+                                          @Param("since") LocalDateTime since,
+                                          @Param("limit") int limit);
+
+    @Modifying
+    @Query("delete from SyncTombstone t where t.deletedAt < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+}
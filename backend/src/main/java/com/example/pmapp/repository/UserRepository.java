@@ -1,11 +1,26 @@
 package com.example.pmapp.repository;
 
 import com.example.pmapp.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Integer> {
+
+    /**
+     * Served from the query cache: the cached result is only the user id,
+     * which is then resolved from the entity cache.  Hibernate drops the
+     * region whenever the users table is written on this node; writes on
+     * other nodes arrive through the invalidation bus.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = User.BY_USERNAME_REGION)
+    })
     Optional<User> findByUsername(String username);
+
     boolean existsByUsername(String username);
 }
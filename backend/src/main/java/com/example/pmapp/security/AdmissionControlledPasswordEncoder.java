@@ -0,0 +1,120 @@
+package com.example.pmapp.security;
+
+import com.example.pmapp.limit.AimdLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs password hashing on a small dedicated pool so a burst of logins
+ * can occupy at most {@code threads} cores, leaving the rest for ordinary
+ * API traffic.  Admission is governed by an {@link AimdLimiter} on the
+ * end-to-end latency (queue wait plus hash): once hashes start queueing
+ * past the target, further attempts are refused at once with
+ * {@link PasswordHashingOverloadedException} rather than waiting.
+ *
+ * Publishes {@code pmapp.password.hash.queue} (hashes waiting for a
+ * thread), {@code pmapp.password.hash.limit} (current admission limit)
+ * and {@code pmapp.password.hash.rejected}.
+ */
+public class AdmissionControlledPasswordEncoder implements PasswordEncoder, AutoCloseable {
+    private final PasswordEncoder delegate;
+    private final AimdLimiter limiter;
+    private final ThreadPoolExecutor executor;
+    private final Duration retryAfter;
+    private final Counter rejected;
+
+    public AdmissionControlledPasswordEncoder(PasswordEncoder delegate,
+                                              int threads,
+                                              AimdLimiter limiter,
+                                              Duration retryAfter,
+                                              MeterRegistry registry) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+        this.retryAfter = retryAfter;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("password-hash-");
+        threadFactory.setDaemon(true);
+        // The limiter admits at most maxLimit callers, so the queue never needs to hold more
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(limiter.getMaxLimit()), threadFactory);
+
+        Gauge.builder("pmapp.password.hash.queue", executor, e -> e.getQueue().size())
+                .description("Password hashes waiting for a hashing thread")
+                .register(registry);
+        Gauge.builder("pmapp.password.hash.limit", limiter, AimdLimiter::getLimit)
+                .description("Current adaptive limit on concurrent password hashes")
+                .register(registry);
+        this.rejected = Counter.builder("pmapp.password.hash.rejected")
+                .description("Password hashes refused because hashing was at capacity")
+                .register(registry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(Callable<T> task) {
+        if (!limiter.tryAcquire()) {
+            throw reject();
+        }
+        long start = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            limiter.releaseDropped(start, System.nanoTime());
+            throw reject();
+        }
+        try {
+            T result = future.get();
+            limiter.release(start, System.nanoTime());
+            return result;
+        } catch (ExecutionException e) {
+            limiter.release(start, System.nanoTime());
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            limiter.releaseDropped(start, System.nanoTime());
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        }
+    }
+
+    private PasswordHashingOverloadedException reject() {
+        rejected.increment();
+        return new PasswordHashingOverloadedException(retryAfter);
+    }
+}
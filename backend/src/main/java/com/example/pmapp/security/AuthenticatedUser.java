@@ -0,0 +1,98 @@
+package com.example.pmapp.security;
+
+import com.example.pmapp.model.Role;
+import com.example.pmapp.model.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Principal describing the caller of the current request.  It is built
+ * once by {@link JwtAuthFilter} (usually straight from the token claims)
+ * and handed to controllers through {@link CurrentUserArgumentResolver},
+ * so handlers and services no longer need to look the user up again.
+ * It carries no password; use the {@link User} entity when credentials
+ * have to be checked.
+ */
+public final class AuthenticatedUser implements UserDetails {
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    private final Integer id;
+    private final String username;
+    private final Role role;
+    private final List<GrantedAuthority> authorities;
+
+    public AuthenticatedUser(Integer id, String username, Role role) {
+        this.id = Objects.requireNonNull(id, "id");
+        this.username = Objects.requireNonNull(username, "username");
+        this.role = Objects.requireNonNull(role, "role");
+        this.authorities = List.of(new SimpleGrantedAuthority(ROLE_PREFIX + role.name()));
+    }
+
+    public static AuthenticatedUser from(User user) {
+        return new AuthenticatedUser(user.getId(), user.getUsername(), user.getRole());
+    }
+
+    /**
+     * Map a granted authority such as "ROLE_ADMIN" back to a {@link Role},
+     * or null if the authority does not name a known role.
+     */
+    public static Role roleFromAuthority(String authority) {
+        if (authority == null || !authority.startsWith(ROLE_PREFIX)) {
+            return null;
+        }
+        try {
+            return Role.valueOf(authority.substring(ROLE_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public boolean isAdmin() {
+        return role == Role.ADMIN;
+    }
+
+    @Override
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AuthenticatedUser that = (AuthenticatedUser) o;
+        return id.equals(that.id) && username.equals(that.username) && role == that.role;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, username, role);
+    }
+
+    @Override
+    public String toString() {
+        return "AuthenticatedUser{id=" + id + ", username='" + username + "', role=" + role + "}";
+    }
+}
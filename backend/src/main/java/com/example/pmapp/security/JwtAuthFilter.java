@@ -1,64 +1,215 @@
 package com.example.pmapp.security;
 
+import com.example.pmapp.events.StreamTicketStore;
+import com.example.pmapp.model.Role;
+import com.example.pmapp.repository.UserRepository;
 import com.example.pmapp.service.JwtService;
-import com.example.pmapp.service.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * Servlet filter that inspects incoming requests for a JWT bearer token
  * and, if present and valid, sets the authentication in the security
- * context.  This allows downstream controllers to access
- * `Authentication` via SecurityContextHolder.
+ * context.  The principal is always an {@link AuthenticatedUser}, which
+ * controllers receive through {@link CurrentUserArgumentResolver}.
+ *
+ * In stateless mode (the default, see {@code app.jwt.stateless}) the
+ * principal is built from the token's "uid", subject and "roles" claims
+ * without touching the database, and verified tokens are remembered in a
+ * {@link VerifiedTokenCache} so repeat calls skip the signature check.
+ * Tokens issued before the "uid" claim existed fall back to a single
+ * user lookup.  Otherwise the token is parsed once and the user is
+ * re-loaded from the user store on every request.
+ *
+ * Either way the token is checked against the {@link TokenRevocationList}
+ * by its "jti" and issue time, which is an in-memory lookup, and is left
+ * in the request as a {@link VerifiedToken} under
+ * {@link #VERIFIED_TOKEN_ATTRIBUTE}.
+ *
+ * EventSource cannot send headers, so {@code GET /api/events} also takes
+ * a single-use {@code ticket} parameter from {@link StreamTicketStore}
+ * instead; bearer tokens are never read from the URL, where they would
+ * be written to access logs.
+ *
+ * Each step is timed as {@code pmapp.jwt.filter}, tagged
+ * {@code phase=cache|parse|user_load}.
  */
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
+    public static final String VERIFIED_TOKEN_ATTRIBUTE = "com.example.pmapp.security.JwtAuthFilter.token";
+    private static final String EVENT_STREAM_PATH = "/api/events";
+    private static final String TICKET_PARAM = "ticket";
+
     private final JwtService jwtService;
-    private final UserDetailsServiceImpl userDetailsService;
+    private final UserRepository userRepository;
+    private final VerifiedTokenCache tokenCache;
+    private final TokenRevocationList revocations;
+    private final StreamTicketStore streamTickets;
+    private final boolean stateless;
+    private final Timer cacheTimer;
+    private final Timer parseTimer;
+    private final Timer userLoadTimer;
 
-    public JwtAuthFilter(JwtService jwtService, UserDetailsServiceImpl userDetailsService) {
+    public JwtAuthFilter(JwtService jwtService,
+                         UserRepository userRepository,
+                         VerifiedTokenCache tokenCache,
+                         TokenRevocationList revocations,
+                         StreamTicketStore streamTickets,
+                         MeterRegistry meterRegistry,
+                         @Value("${app.jwt.stateless:true}") boolean stateless) {
         this.jwtService = jwtService;
-        this.userDetailsService = userDetailsService;
+        this.userRepository = userRepository;
+        this.tokenCache = tokenCache;
+        this.revocations = revocations;
+        this.streamTickets = streamTickets;
+        this.stateless = stateless;
+        this.cacheTimer = phaseTimer(meterRegistry, "cache");
+        this.parseTimer = phaseTimer(meterRegistry, "parse");
+        this.userLoadTimer = phaseTimer(meterRegistry, "user_load");
+    }
+
+    private static Timer phaseTimer(MeterRegistry registry, String phase) {
+        return Timer.builder("pmapp.jwt.filter")
+                .description("Time spent authenticating bearer tokens, by phase")
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(registry);
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
-        final String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
-        String jwt = null;
-        String username = null;
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            jwt = authHeader.substring(7);
-            try {
-                username = jwtService.extractUsername(jwt);
-            } catch (Exception ignore) {
-                // If token parsing fails we skip authentication; downstream will handle
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            final String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+            Authenticated authenticated = null;
+            if (authHeader != null && authHeader.startsWith("Bearer ")) {
+                String jwt = authHeader.substring(7);
+                authenticated = stateless ? authenticateStateless(jwt) : authenticateWithUserStore(jwt);
+            } else if (HttpMethod.GET.matches(request.getMethod())
+                    && EVENT_STREAM_PATH.equals(request.getRequestURI().substring(request.getContextPath().length()))
+                    && request.getParameter(TICKET_PARAM) != null) {
+                authenticated = authenticateTicket(request.getParameter(TICKET_PARAM));
             }
-        }
-
-        // If we have a username and no authentication yet, validate token
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            if (authenticated != null) {
+                AuthenticatedUser user = authenticated.user();
                 UsernamePasswordAuthenticationToken authToken =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails, null, userDetails.getAuthorities());
+                        new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
+                request.setAttribute(VERIFIED_TOKEN_ATTRIBUTE, authenticated.token());
             }
         }
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private Authenticated authenticateStateless(String jwt) {
+        VerifiedTokenCache.Entry cached = cacheTimer.record(() -> tokenCache.get(jwt));
+        if (cached != null) {
+            return checked(cached.principal(), new VerifiedToken(cached.jti(), cached.issuedAt(), cached.expiresAt()));
+        }
+        Claims claims = parse(jwt);
+        if (claims == null || claims.getSubject() == null) {
+            return null;
+        }
+        Integer userId = jwtService.extractUserId(claims);
+        Role role = roleFrom(claims);
+        AuthenticatedUser user = userId != null && role != null
+                ? new AuthenticatedUser(userId, claims.getSubject(), role)
+                : loadUser(claims.getSubject());
+        if (user == null) {
+            return null;
+        }
+        VerifiedToken token = tokenOf(claims);
+        tokenCache.put(jwt, user, token.jti(), token.issuedAtMillis(), token.expiresAtMillis());
+        return checked(user, token);
+    }
+
+    private Authenticated authenticateWithUserStore(String jwt) {
+        Claims claims = parse(jwt);
+        if (claims == null || claims.getSubject() == null) {
+            return null;
+        }
+        AuthenticatedUser user = loadUser(claims.getSubject());
+        if (user == null || !jwtService.isTokenValid(claims, user)) {
+            return null;
+        }
+        return checked(user, tokenOf(claims));
+    }
+
+    /**
+     * A stream ticket stands in for the access token it was issued with:
+     * it is refused once that token has expired or been revoked.
+     */
+    private Authenticated authenticateTicket(String ticket) {
+        StreamTicketStore.Redeemed redeemed = streamTickets.redeem(ticket);
+        if (redeemed == null || redeemed.token().expiresAtMillis() <= System.currentTimeMillis()) {
+            return null;
+        }
+        AuthenticatedUser user = userLoadTimer.record(() -> userRepository.findById(redeemed.userId())
+                .map(AuthenticatedUser::from)
+                .orElse(null));
+        return user == null ? null : checked(user, redeemed.token());
+    }
+
+    private Authenticated checked(AuthenticatedUser user, VerifiedToken token) {
+        return revocations.isRevoked(token.jti(), user.getId(), token.issuedAtMillis())
+                ? null
+                : new Authenticated(user, token);
+    }
+
+    private VerifiedToken tokenOf(Claims claims) {
+        return new VerifiedToken(claims.getId(), jwtService.extractIssuedAtMillis(claims),
+                claims.getExpiration().getTime());
+    }
+
+    private AuthenticatedUser loadUser(String username) {
+        return userLoadTimer.record(() -> userRepository.findByUsername(username)
+                .map(AuthenticatedUser::from)
+                .orElse(null));
+    }
+
+    private Claims parse(String jwt) {
+        return parseTimer.record(() -> {
+            try {
+                return jwtService.parseClaims(jwt);
+            } catch (JwtException | IllegalArgumentException ignore) {
+                // If token parsing fails we skip authentication; downstream will handle
+                return null;
+            }
+        });
+    }
+
+    private static Role roleFrom(Claims claims) {
+        Object roles = claims.get("roles");
+        if (!(roles instanceof List<?> list)) {
+            return null;
+        }
+        return list.stream()
+                .map(String::valueOf)
+                .map(AuthenticatedUser::roleFromAuthority)
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private record Authenticated(AuthenticatedUser user, VerifiedToken token) {}
+}
@@ -0,0 +1,26 @@
+package com.example.pmapp.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+
+/**
+ * Thrown when password hashing is at capacity.  Resolves to
+ * {@code 429 Too Many Requests} with a {@code Retry-After} header wherever
+ * it is thrown, including from inside the authentication manager.
+ */
+public class PasswordHashingOverloadedException extends ResponseStatusException {
+    private final HttpHeaders headers = new HttpHeaders();
+
+    public PasswordHashingOverloadedException(Duration retryAfter) {
+        super(HttpStatus.TOO_MANY_REQUESTS, "Too many concurrent sign-in attempts, retry later");
+        headers.set(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, retryAfter.toSeconds())));
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+}
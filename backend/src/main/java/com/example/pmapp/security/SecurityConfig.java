@@ -1,9 +1,20 @@
 package com.example.pmapp.security;
 
+import com.example.pmapp.controller.ProjectController;
+import com.example.pmapp.idempotency.IdempotencyFilter;
+import com.example.pmapp.limit.AimdLimiter;
+import com.example.pmapp.limit.RequestLimitFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.AuthorizationManagers;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -13,11 +24,16 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.IpAddressAuthorizationManager;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 
 @Configuration
@@ -25,14 +41,34 @@ import java.util.List;
 @EnableMethodSecurity
 public class SecurityConfig {
     private final JwtAuthFilter jwtAuthFilter;
+    private final RequestLimitFilter requestLimitFilter;
+    private final IdempotencyFilter idempotencyFilter;
 
-    public SecurityConfig(JwtAuthFilter jwtAuthFilter) {
+    public SecurityConfig(JwtAuthFilter jwtAuthFilter,
+                          RequestLimitFilter requestLimitFilter,
+                          IdempotencyFilter idempotencyFilter) {
         this.jwtAuthFilter = jwtAuthFilter;
+        this.requestLimitFilter = requestLimitFilter;
+        this.idempotencyFilter = idempotencyFilter;
     }
 
+    /**
+     * BCrypt, timed, and run on a dedicated pool behind an adaptive
+     * admission limit so login storms cannot take every core.  With
+     * {@code app.auth.hashing.threads=0} the pool gets half the cores.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public AdmissionControlledPasswordEncoder passwordEncoder(
+            MeterRegistry meterRegistry,
+            @Value("${app.auth.hashing.threads:0}") int threads,
+            @Value("${app.auth.hashing.max-concurrency:64}") int maxConcurrency,
+            @Value("${app.auth.hashing.target-latency:500ms}") Duration targetLatency,
+            @Value("${app.auth.hashing.retry-after:1s}") Duration retryAfter) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AimdLimiter limiter = new AimdLimiter(poolSize * 4, poolSize, Math.max(poolSize, maxConcurrency),
+                targetLatency.toNanos(), 0.9);
+        PasswordEncoder bcrypt = new TimedPasswordEncoder(new BCryptPasswordEncoder(), meterRegistry);
+        return new AdmissionControlledPasswordEncoder(bcrypt, poolSize, limiter, retryAfter, meterRegistry);
     }
 
     @Bean
@@ -46,6 +82,8 @@ public class SecurityConfig {
         configuration.setAllowedOrigins(List.of("http://192.168.*.*:4200","https://*.pages.dev", "http://localhost:4200"));
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
         configuration.setAllowedHeaders(List.of("*"));
+        configuration.setExposedHeaders(List.of(ProjectController.NEXT_CURSOR_HEADER,
+                ProjectController.SEARCH_TRUNCATED_HEADER, "ETag", "Retry-After", IdempotencyFilter.REPLAYED_HEADER));
         configuration.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -54,12 +92,19 @@ public class SecurityConfig {
     }
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(
+            HttpSecurity http,
+            @Value("${app.metrics.scrape-addresses:127.0.0.1,::1}") List<String> scrapeAddresses) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                // Missing, expired or revoked tokens get 401 so clients know to refresh (the default would be 403)
+                .exceptionHandling(ex -> ex.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
                 .authorizeHttpRequests(auth -> auth
+                        // Async dispatches (the event stream) and error pages were authorized on the original request
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
+
                         // Public auth endpoints (support both /auth/** and /api/auth/**)
                         .requestMatchers("/api/auth/**", "/auth/**").permitAll()
 
@@ -80,11 +125,38 @@ public class SecurityConfig {
                         // (Place after the /users/me rule so non-admins can still self-delete.)
                         .requestMatchers(HttpMethod.DELETE, "/users/**", "/api/users/**").hasRole("ADMIN")
 
+                        // Operational endpoints; only health stays open for infrastructure
+                        .requestMatchers("/actuator/health/**").permitAll()
+                        .requestMatchers("/actuator/prometheus").access(adminOrScraper(scrapeAddresses))
+                        .requestMatchers("/actuator/**", "/api/admin/**").hasRole("ADMIN")
+
                         // Everything else requires authentication
                         .anyRequest().authenticated()
                 )
-                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                // Rate limits are per user, so they apply once the token has been checked
+                .addFilterAfter(requestLimitFilter, JwtAuthFilter.class)
+                // Keys are per user; retries still count against the rate limit
+                .addFilterAfter(idempotencyFilter, RequestLimitFilter.class);
 
         return http.build();
     }
+
+    /**
+     * Admins, or requests from the Prometheus servers listed in
+     * {@code app.metrics.scrape-addresses} (addresses or CIDR ranges).
+     * The scrape must reach the application directly: behind a proxy
+     * every request would come from the proxy's address.
+     */
+    @SuppressWarnings("unchecked")
+    private static AuthorizationManager<RequestAuthorizationContext> adminOrScraper(List<String> scrapeAddresses) {
+        List<AuthorizationManager<RequestAuthorizationContext>> allowed = new ArrayList<>();
+        allowed.add(AuthorityAuthorizationManager.hasRole("ADMIN"));
+        for (String address : scrapeAddresses) {
+            if (!address.isBlank()) {
+                allowed.add(IpAddressAuthorizationManager.hasIpAddress(address.trim()));
+            }
+        }
+        return AuthorizationManagers.anyOf(allowed.toArray(AuthorizationManager[]::new));
+    }
 }
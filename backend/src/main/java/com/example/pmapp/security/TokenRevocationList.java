@@ -0,0 +1,210 @@
+package com.example.pmapp.security;
+
+import com.example.pmapp.cache.CacheInvalidationEvent;
+import com.example.pmapp.cache.CacheRegion;
+import com.example.pmapp.model.TokenRevocation;
+import com.example.pmapp.repository.TokenRevocationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory mirror of the {@code token_revocations} table, consulted by
+ * {@link JwtAuthFilter} on every authenticated request.
+ *
+ * Revoked token ids sit behind a {@link BloomFilter}: for the common case
+ * of a token that was never revoked the check is a few bit probes, with
+ * no lock, no allocation and no database access.  Only a filter hit is
+ * confirmed against the exact set.  Per-user cut-offs (all tokens issued
+ * before a password or username change) are kept in a map that is empty
+ * most of the time.
+ *
+ * Revocations reach every node through the {@link CacheRegion#TOKEN_REVOCATIONS}
+ * invalidation, which carries the row id.  Entries are dropped, and the
+ * filter rebuilt, once the tokens they cover have expired.
+ */
+@Component
+public class TokenRevocationList implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationList.class);
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final TokenRevocationRepository repository;
+    private final int expectedEntries;
+    private final Duration sweepInterval;
+
+    /** Revoked jti to the expiry (epoch millis) of the token it identifies. */
+    private final ConcurrentHashMap<String, Long> revokedIds = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Cutoff> userCutoffs = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+
+    private volatile boolean running;
+    private ScheduledExecutorService sweeper;
+
+    public TokenRevocationList(TokenRevocationRepository repository,
+                               @Value("${app.jwt.revocation.expected-entries:10000}") int expectedEntries,
+                               @Value("${app.jwt.revocation.sweep-interval:1m}") Duration sweepInterval) {
+        this.repository = repository;
+        this.expectedEntries = expectedEntries;
+        this.sweepInterval = sweepInterval;
+        this.filter = new BloomFilter(expectedEntries, FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * Whether a token has been revoked, either by its id or by a cut-off
+     * for its user.  A cut-off revokes every token whose "iat" is at or
+     * before the exact revocation time.  "iat" has one-second resolution
+     * and is rounded down, so a token issued earlier in the same second is
+     * revoked too; tokens issued afterwards get an "iat" past the cut-off
+     * from {@link #issuedAtFor}, so a client can refresh right after
+     * changing its username.
+     *
+     * @param jti            the token's "jti" claim, or null for older tokens
+     * @param userId         the token's user, or null if unknown
+     * @param issuedAtMillis the token's "iat" claim in epoch millis
+     */
+    public boolean isRevoked(String jti, Integer userId, long issuedAtMillis) {
+        if (jti != null && filter.mightContain(jti) && revokedIds.containsKey(jti)) {
+            return true;
+        }
+        if (userId == null || userCutoffs.isEmpty()) {
+            return false;
+        }
+        Cutoff cutoff = userCutoffs.get(userId);
+        return cutoff != null && issuedAtMillis <= cutoff.revokedAt();
+    }
+
+    /**
+     * The "iat" to give a token issued now: the current second, or the
+     * first whole second after the user's latest cut-off if that is later,
+     * so the new token is not caught by the cut-off.  A node that has not
+     * yet heard of a cut-off issues a token that the cut-off revokes once
+     * it arrives, which errs on the safe side.
+     */
+    public Instant issuedAtFor(Integer userId) {
+        long nowSeconds = Instant.now().getEpochSecond();
+        Cutoff cutoff = userId != null ? userCutoffs.get(userId) : null;
+        if (cutoff == null) {
+            return Instant.ofEpochSecond(nowSeconds);
+        }
+        long afterCutoff = Math.floorDiv(cutoff.revokedAt(), 1000) + 1;
+        return Instant.ofEpochSecond(Math.max(nowSeconds, afterCutoff));
+    }
+
+    /** Ordered first, so listeners that consult the list (EventStreamHub) see the update. */
+    @EventListener
+    @Order(0)
+    public void onInvalidation(CacheInvalidationEvent event) {
+        if (!event.appliesTo(CacheRegion.TOKEN_REVOCATIONS)) {
+            return;
+        }
+        if (event.isRegionWide()) {
+            reload();
+            return;
+        }
+        try {
+            repository.findById(Long.valueOf(event.key())).ifPresent(this::apply);
+        } catch (NumberFormatException e) {
+            reload();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (running) {
+            return;
+        }
+        reload();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("token-revocation-sweeper-");
+        threadFactory.setDaemon(true);
+        sweeper = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long intervalMs = sweepInterval.toMillis();
+        sweeper.scheduleWithFixedDelay(this::sweep, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** Load before the web server starts taking requests. */
+    @Override
+    public int getPhase() {
+        return Integer.MIN_VALUE;
+    }
+
+    private synchronized void apply(TokenRevocation revocation) {
+        long expiresAt = revocation.getExpiresAt().toEpochMilli();
+        if (expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+        if (revocation.getJti() != null) {
+            revokedIds.put(revocation.getJti(), expiresAt);
+            if (revokedIds.size() > filter.capacity()) {
+                rebuildFilter();
+            } else {
+                filter.put(revocation.getJti());
+            }
+        } else {
+            long revokedAt = revocation.getRevokedAt().toEpochMilli();
+            userCutoffs.merge(revocation.getUserId(), new Cutoff(revokedAt, expiresAt),
+                    (a, b) -> new Cutoff(Math.max(a.revokedAt(), b.revokedAt()), Math.max(a.expiresAt(), b.expiresAt())));
+        }
+    }
+
+    private void reload() {
+        Instant now = Instant.now();
+        synchronized (this) {
+            revokedIds.clear();
+            userCutoffs.clear();
+            repository.findByExpiresAtAfter(now).forEach(this::apply);
+            rebuildFilter();
+        }
+        log.info("Loaded {} revoked tokens and {} user cut-offs", revokedIds.size(), userCutoffs.size());
+    }
+
+    private void sweep() {
+        try {
+            long now = System.currentTimeMillis();
+            synchronized (this) {
+                boolean removed = revokedIds.values().removeIf(expiresAt -> expiresAt <= now);
+                userCutoffs.values().removeIf(c -> c.expiresAt() <= now);
+                if (removed) {
+                    rebuildFilter();
+                }
+            }
+            repository.deleteExpired(Instant.ofEpochMilli(now));
+        } catch (RuntimeException e) {
+            log.warn("Token revocation sweep failed", e);
+        }
+    }
+
+    /** Size a fresh filter for the current entries with room to grow, then swap it in. */
+    private void rebuildFilter() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, revokedIds.size() * 2), FALSE_POSITIVE_RATE);
+        revokedIds.keySet().forEach(rebuilt::put);
+        filter = rebuilt;
+    }
+
+    private record Cutoff(long revokedAt, long expiresAt) {}
+}
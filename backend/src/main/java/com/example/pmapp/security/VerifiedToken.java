@@ -0,0 +1,9 @@
+package com.example.pmapp.security;
+
+/**
+ * The access token a request was authenticated with, as far as later
+ * checks need it: its "jti" (null for older tokens), issue time and
+ * expiry in epoch millis.  {@link JwtAuthFilter} leaves it in the
+ * request attribute {@link JwtAuthFilter#VERIFIED_TOKEN_ATTRIBUTE}.
+ */
+public record VerifiedToken(String jti, long issuedAtMillis, long expiresAtMillis) {}
@@ -0,0 +1,98 @@
+package com.example.pmapp.security;
+
+import com.example.pmapp.cache.CacheInvalidationEvent;
+import com.example.pmapp.cache.CacheRegion;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of tokens whose signature has already been verified,
+ * mapped to the principal built from their claims.  Entries expire
+ * together with the token they belong to, so a cached token can never
+ * outlive its own "exp" claim.  When the cache is full, expired entries
+ * are purged first and then an arbitrary slice of the remaining ones is
+ * dropped; clients that lose their entry simply pay for one more parse.
+ * A {@link CacheRegion#USERS} invalidation drops every entry of that
+ * user, so a rename or deletion on any node is seen on the next request.
+ * Entries keep the token's id and issue time so that revocation can
+ * still be checked without parsing the token again.
+ */
+@Component
+public class VerifiedTokenCache {
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+
+    public VerifiedTokenCache(@Value("${app.jwt.cache.max-entries:10000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Return what was cached for the given token, or null if the token has
+     * not been seen yet or has expired in the meantime.
+     */
+    public Entry get(String token) {
+        Entry entry = entries.get(token);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() <= System.currentTimeMillis()) {
+            entries.remove(token, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    public void put(String token, AuthenticatedUser principal, String jti, long issuedAtMillis, long expiresAtMillis) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            evict();
+        }
+        entries.put(token, new Entry(principal, jti, issuedAtMillis, expiresAtMillis));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /** Drop every cached token that belongs to the given user. */
+    public void evictUser(Integer userId) {
+        entries.values().removeIf(e -> e.principal().getId() != null && e.principal().getId().equals(userId));
+    }
+
+    @EventListener
+    public void onInvalidation(CacheInvalidationEvent event) {
+        if (!event.appliesTo(CacheRegion.USERS)) {
+            return;
+        }
+        if (event.isRegionWide()) {
+            clear();
+            return;
+        }
+        try {
+            evictUser(Integer.valueOf(event.key()));
+        } catch (NumberFormatException e) {
+            clear();
+        }
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(e -> e.expiresAt() <= now);
+        // Still full: drop roughly a tenth of the entries to make room
+        int toDrop = entries.size() - maxEntries + Math.max(1, maxEntries / 10);
+        Iterator<String> it = entries.keySet().iterator();
+        while (toDrop-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /** A verified token: its principal, "jti" (null for older tokens), and "iat" and "exp" in epoch millis. */
+    public record Entry(AuthenticatedUser principal, String jti, long issuedAt, long expiresAt) {}
+}
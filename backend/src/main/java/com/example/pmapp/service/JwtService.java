@@ -1,6 +1,8 @@
 package com.example.pmapp.service;
 
+import com.example.pmapp.security.AuthenticatedUser;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -12,10 +14,12 @@ import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.security.Key;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 /**
@@ -29,41 +33,78 @@ import java.util.function.Function;
 public class JwtService {
     private final SecretKey signingKey;
     private final long expiration;
+    // Parsers are immutable and thread-safe, so one instance serves every request
+    private final JwtParser parser;
 
     public JwtService(@Value("${app.jwt.secret}") String base64Secret,
                       @Value("${app.jwt.expiration}") long expirationMs) {
         byte[] keyBytes = Decoders.BASE64.decode(base64Secret);
         this.signingKey = Keys.hmacShaKeyFor(keyBytes);
         this.expiration = expirationMs;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
     }
 
+    public static final String USER_ID_CLAIM = "uid";
+
     /**
      * Generate a new JWT token for the given user.  The token will include
      * the username as its subject and a list of authorities as a custom
-     * claim named "roles".  The expiration is calculated from the
-     * current time and the configured expiration interval.
+     * claim named "roles".  When the user is an {@link AuthenticatedUser}
+     * its id is added as a "uid" claim so the principal can be rebuilt
+     * from the token alone.  Every token gets a random "jti" claim so it
+     * can be revoked individually (see TokenRevocationService).  The
+     * expiration is calculated from the current time and the configured
+     * expiration interval.
      */
     public String generateToken(UserDetails userDetails) {
+        return generateToken(userDetails, Instant.now());
+    }
+
+    /**
+     * As {@link #generateToken(UserDetails)}, with the given "iat" claim
+     * instead of the current time; see TokenRevocationList#issuedAtFor.
+     */
+    public String generateToken(UserDetails userDetails, Instant issuedAt) {
         Map<String, Object> claims = new HashMap<>();
         List<String> roles = userDetails.getAuthorities().stream()
                 .map(GrantedAuthority::getAuthority)
                 .toList();
         claims.put("roles", roles);
+        if (userDetails instanceof AuthenticatedUser user) {
+            claims.put(USER_ID_CLAIM, user.getId());
+        }
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(userDetails.getUsername())
-                .setIssuedAt(new Date())
+                .setId(UUID.randomUUID().toString())
+                .setIssuedAt(Date.from(issuedAt))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
                 .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /** Lifetime of newly issued access tokens, in milliseconds. */
+    public long getExpirationMillis() {
+        return expiration;
+    }
+
+    /**
+     * Verify the signature and expiry of the token and return its claims.
+     * This is the single parse used by the authentication filter; callers
+     * needing several claims should read them from the returned object
+     * rather than calling the individual extract methods.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is malformed,
+     *         tampered with or expired
+     */
+    public Claims parseClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(signingKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parseClaims(token);
     }
 
     private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
@@ -81,6 +122,22 @@ public class JwtService {
         return (List<String>) claims.get("roles");
     }
 
+    /**
+     * Read the "uid" claim, or null for tokens issued without one.
+     */
+    public Integer extractUserId(Claims claims) {
+        Object uid = claims.get(USER_ID_CLAIM);
+        return uid instanceof Number n ? n.intValue() : null;
+    }
+
+    /**
+     * Read the "iat" claim in epoch millis, or 0 for tokens without one.
+     */
+    public long extractIssuedAtMillis(Claims claims) {
+        Date issuedAt = claims.getIssuedAt();
+        return issuedAt != null ? issuedAt.getTime() : 0L;
+    }
+
     public Date extractExpiration(String token) {
         return extractClaim(token, Claims::getExpiration);
     }
@@ -90,7 +147,11 @@ public class JwtService {
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return username.equals(userDetails.getUsername()) && !isTokenExpired(token);
+        return isTokenValid(extractAllClaims(token), userDetails);
+    }
+
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return userDetails.getUsername().equals(claims.getSubject())
+                && !claims.getExpiration().before(new Date());
     }
 }
\ No newline at end of file
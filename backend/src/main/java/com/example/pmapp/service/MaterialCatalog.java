@@ -0,0 +1,97 @@
+package com.example.pmapp.service;
+
+import com.example.pmapp.MaterialMapper;
+import com.example.pmapp.cache.CacheInvalidationEvent;
+import com.example.pmapp.cache.CacheRegion;
+import com.example.pmapp.dto.MaterialResponse;
+import com.example.pmapp.repository.MaterialRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through, in-memory copy of the material catalog.  The catalog is
+ * small and changes only when an administrator creates or deletes a
+ * material, so every read is served from an immutable {@link Snapshot}
+ * holding the DTOs, their pre-serialized JSON and an ETag derived from
+ * that JSON.  Writes publish a {@link CacheRegion#MATERIALS} invalidation
+ * that drops the snapshot on every node once their transaction commits;
+ * the next read rebuilds it from the database.
+ */
+@Component
+public class MaterialCatalog {
+    private final MaterialRepository repo;
+    private final ObjectMapper objectMapper;
+
+    private volatile Snapshot current;
+    // Bumped on every invalidation so a rebuild racing with a write is not installed
+    private final AtomicLong generation = new AtomicLong();
+
+    public MaterialCatalog(MaterialRepository repo, ObjectMapper objectMapper) {
+        this.repo = repo;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Immutable view of the catalog at one point in time, with the prefix
+     * index used by the material autocomplete.
+     */
+    public record Snapshot(List<MaterialResponse> materials, byte[] json, String etag,
+                           MaterialPrefixIndex prefixIndex) {}
+
+    public Snapshot snapshot() {
+        Snapshot snapshot = current;
+        return snapshot != null ? snapshot : rebuild();
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        current = null;
+    }
+
+    @EventListener
+    public void onInvalidation(CacheInvalidationEvent event) {
+        // The snapshot holds the whole catalog, so any material change drops all of it
+        if (event.appliesTo(CacheRegion.MATERIALS)) {
+            invalidate();
+        }
+    }
+
+    private synchronized Snapshot rebuild() {
+        Snapshot snapshot = current;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        long expectedGeneration = generation.get();
+        List<MaterialResponse> materials = repo.findAll().stream()
+                .map(MaterialMapper::toResponse)
+                .toList();
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(materials);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize material catalog", e);
+        }
+        snapshot = new Snapshot(materials, json, etagOf(json), MaterialPrefixIndex.of(materials));
+        if (generation.get() == expectedGeneration) {
+            current = snapshot;
+        }
+        return snapshot;
+    }
+
+    private static String etagOf(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
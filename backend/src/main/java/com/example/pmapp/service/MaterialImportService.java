@@ -0,0 +1,323 @@
+package com.example.pmapp.service;
+
+import com.example.pmapp.cache.CacheRegion;
+import com.example.pmapp.cache.InvalidationBus;
+import com.example.pmapp.dto.MaterialImportResult;
+import com.example.pmapp.model.Role;
+import com.example.pmapp.security.AuthenticatedUser;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Bulk import of supplier catalogs.  The uploaded CSV is parsed one
+ * record at a time and valid rows are streamed with PostgreSQL COPY into
+ * a temporary staging table, which is then merged into {@code materials}
+ * by {@code market_id} in one set-based statement.  Rows that fail
+ * validation, repeat a market id or name within the file, or would take
+ * the name of another existing material are left out and reported by
+ * line number; everything else is imported in a single transaction.
+ */
+@Service
+public class MaterialImportService {
+    private static final int NAME_MAX = 120;
+    private static final int MARKET_ID_MAX = 50;
+    private static final int SELLER_MAX = 120;
+    private static final int PICTURE_MAX = 255;
+    private static final int COPY_CHUNK_CHARS = 64 * 1024;
+
+    private static final String CREATE_STAGING = """
+            create temp table material_import (
+                line_no bigint not null,
+                name text not null,
+                market_id text not null,
+                seller text not null,
+                material_picture text
+            ) on commit drop
+            """;
+
+    private static final String COPY_STAGING =
+            "copy material_import (line_no, name, market_id, seller, material_picture) from stdin with (format csv)";
+
+    // The first line of each market id wins; later ones are rejected.  Names are checked among the survivors
+    private static final String REJECT_REPEATED_MARKET_IDS = """
+            delete from material_import s
+            using (
+                select line_no, row_number() over (partition by market_id order by line_no) as occurrence
+                from material_import
+            ) d
+            where d.line_no = s.line_no and d.occurrence > 1
+            returning s.line_no, s.market_id
+            """;
+
+    private static final String REJECT_REPEATED_NAMES = """
+            delete from material_import s
+            using (
+                select line_no, row_number() over (partition by name order by line_no) as occurrence
+                from material_import
+            ) d
+            where d.line_no = s.line_no and d.occurrence > 1
+            returning s.line_no, s.market_id
+            """;
+
+    // Names may only move with their own market id; taking another material's name would violate uq(name)
+    private static final String REJECT_TAKEN_NAMES = """
+            delete from material_import s
+            using materials m
+            where m.name = s.name and m.market_id <> s.market_id
+            returning s.line_no, s.market_id
+            """;
+
+    // clock_timestamp() rather than the transaction start, which may be long past after a big COPY
+    private static final String MERGE = """
+            with merged as (
+                insert into materials (name, market_id, seller, material_picture, updated_at)
+                select name, market_id, seller, material_picture, clock_timestamp() from material_import
+                on conflict (market_id) do update
+                    set name = excluded.name,
+                        seller = excluded.seller,
+                        material_picture = excluded.material_picture,
+                        updated_at = excluded.updated_at
+                returning (xmax = 0) as inserted
+            )
+            select count(*) filter (where inserted) as inserted,
+                   count(*) filter (where not inserted) as updated
+            from merged
+            """;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final InvalidationBus invalidationBus;
+    private final int maxReportedRejections;
+
+    public MaterialImportService(DataSource dataSource,
+                                 JdbcTemplate jdbcTemplate,
+                                 InvalidationBus invalidationBus,
+                                 @Value("${app.materials.import.max-reported-rejections:500}") int maxReportedRejections) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.invalidationBus = invalidationBus;
+        this.maxReportedRejections = maxReportedRejections;
+    }
+
+    /**
+     * Import a CSV catalog with a header row naming at least the
+     * {@code name}, {@code marketId} and {@code seller} columns, and
+     * optionally {@code pictureUrl}.  Existing materials with the same
+     * market id are updated, the others inserted.
+     *
+     * @throws IllegalArgumentException "Forbidden" for non-admins, or a
+     *         description of why the file cannot be read at all
+     */
+    @Transactional
+    public MaterialImportResult importCsv(AuthenticatedUser caller, Reader csv) throws IOException {
+        if (caller.getRole() != Role.ADMIN) {
+            throw new IllegalArgumentException("Forbidden");
+        }
+        Rejections rejections = new Rejections(maxReportedRejections);
+        jdbcTemplate.execute(CREATE_STAGING);
+
+        long received;
+        try (CsvReader reader = new CsvReader(csv)) {
+            received = stage(reader, rejections);
+        }
+
+        jdbcTemplate.execute("analyze material_import");
+        jdbcTemplate.query(REJECT_REPEATED_MARKET_IDS, rs -> {
+            rejections.add(rs.getLong("line_no"), rs.getString("market_id"), "Duplicate marketId in file");
+        });
+        jdbcTemplate.query(REJECT_REPEATED_NAMES, rs -> {
+            rejections.add(rs.getLong("line_no"), rs.getString("market_id"), "Duplicate name in file");
+        });
+        jdbcTemplate.query(REJECT_TAKEN_NAMES, rs -> {
+            rejections.add(rs.getLong("line_no"), rs.getString("market_id"),
+                    "Name already used by another material");
+        });
+        long[] counts = jdbcTemplate.queryForObject(MERGE,
+                (rs, rowNum) -> new long[] {rs.getLong("inserted"), rs.getLong("updated")});
+
+        // The merge bypasses Hibernate, so drop every cached material on all nodes
+        invalidationBus.publish(CacheRegion.MATERIALS, null);
+        return new MaterialImportResult(received, counts[0], counts[1], rejections.count(), rejections.reported());
+    }
+
+    /**
+     * Validate every record and COPY the valid ones into the staging
+     * table.  Only the current record is held in memory; repeats within
+     * the file are found afterwards in the staging table.  Returns the
+     * number of data records read.
+     */
+    private long stage(CsvReader reader, Rejections rejections) throws IOException {
+        List<String> header = reader.next();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV file is empty");
+        }
+        Columns columns = Columns.of(header);
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        CopyIn copyIn = null;
+        try {
+            copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING);
+            StringBuilder chunk = new StringBuilder(COPY_CHUNK_CHARS + 1024);
+            long received = 0;
+            List<String> record;
+            while ((record = reader.next()) != null) {
+                received++;
+                long line = reader.recordLine();
+                String name = columns.value(record, columns.name);
+                String marketId = columns.value(record, columns.marketId);
+                String seller = columns.value(record, columns.seller);
+                String picture = columns.value(record, columns.picture);
+
+                String reason = validate(name, marketId, seller, picture);
+                if (reason != null) {
+                    rejections.add(line, marketId, reason);
+                    continue;
+                }
+
+                chunk.append(line).append(',');
+                appendCsv(chunk, name).append(',');
+                appendCsv(chunk, marketId).append(',');
+                appendCsv(chunk, seller).append(',');
+                appendCsv(chunk, picture).append('\n');
+                if (chunk.length() >= COPY_CHUNK_CHARS) {
+                    write(copyIn, chunk);
+                }
+            }
+            write(copyIn, chunk);
+            copyIn.endCopy();
+            return received;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not stage material import", e);
+        } finally {
+            if (copyIn != null && copyIn.isActive()) {
+                try {
+                    copyIn.cancelCopy();
+                } catch (SQLException ignore) {
+                    // the transaction is rolled back anyway
+                }
+            }
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private static String validate(String name, String marketId, String seller, String picture) {
+        if (marketId == null) return "marketId required";
+        if (name == null) return "name required";
+        if (seller == null) return "seller required";
+        if (marketId.length() > MARKET_ID_MAX) return "marketId longer than " + MARKET_ID_MAX + " characters";
+        if (name.length() > NAME_MAX) return "name longer than " + NAME_MAX + " characters";
+        if (seller.length() > SELLER_MAX) return "seller longer than " + SELLER_MAX + " characters";
+        if (picture != null && picture.length() > PICTURE_MAX) return "pictureUrl longer than " + PICTURE_MAX + " characters";
+        return null;
+    }
+
+    /** Quote a value for COPY ... (FORMAT csv); null becomes an unquoted empty field, i.e. NULL. */
+    private static StringBuilder appendCsv(StringBuilder out, String value) {
+        if (value == null) {
+            return out;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        return out.append('"');
+    }
+
+    private static void write(CopyIn copyIn, StringBuilder chunk) throws SQLException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        chunk.setLength(0);
+    }
+
+    /**
+     * Positions of the known columns in the header row; -1 when absent.
+     */
+    private static final class Columns {
+        private int name = -1;
+        private int marketId = -1;
+        private int seller = -1;
+        private int picture = -1;
+
+        static Columns of(List<String> header) {
+            Columns columns = new Columns();
+            for (int i = 0; i < header.size(); i++) {
+                String key = header.get(i).replace("\uFEFF", "").replaceAll("[_\\s]", "").toLowerCase(Locale.ROOT);
+                switch (key) {
+                    case "name" -> columns.name = i;
+                    case "marketid" -> columns.marketId = i;
+                    case "seller" -> columns.seller = i;
+                    case "pictureurl", "materialpicture" -> columns.picture = i;
+                    default -> {
+                        // unknown columns are ignored
+                    }
+                }
+            }
+            if (columns.name < 0 || columns.marketId < 0 || columns.seller < 0) {
+                throw new IllegalArgumentException("CSV header must contain name, marketId and seller columns");
+            }
+            return columns;
+        }
+
+        /** Trimmed value of a column, or null when it is missing or blank. */
+        String value(List<String> record, int index) {
+            if (index < 0 || index >= record.size()) {
+                return null;
+            }
+            String value = record.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+    }
+
+    /**
+     * Counts every rejection but keeps only the first {@code limit} for the
+     * report, so a badly broken file cannot blow up the response.
+     */
+    private static final class Rejections {
+        private final int limit;
+        private final List<MaterialImportResult.Rejection> reported = new ArrayList<>();
+        private long count;
+
+        Rejections(int limit) {
+            this.limit = limit;
+        }
+
+        void add(long line, String marketId, String reason) {
+            count++;
+            if (reported.size() < limit) {
+                reported.add(new MaterialImportResult.Rejection(line, marketId, reason));
+            }
+        }
+
+        long count() {
+            return count;
+        }
+
+        List<MaterialImportResult.Rejection> reported() {
+            reported.sort(Comparator.comparingLong(MaterialImportResult.Rejection::line));
+            return reported;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.pmapp.service;
+
+import com.example.pmapp.dto.MaterialResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Immutable prefix index over the material catalog.  Every material is
+ * indexed under its name, market id and seller, and under each word of
+ * its name and seller, all lower-cased.  The keys are kept in one sorted
+ * array, so a lookup is a binary search followed by a short forward scan
+ * and never touches the database.
+ */
+public final class MaterialPrefixIndex {
+    private final String[] keys;
+    private final int[] refs;
+    private final List<MaterialResponse> materials;
+
+    private MaterialPrefixIndex(String[] keys, int[] refs, List<MaterialResponse> materials) {
+        this.keys = keys;
+        this.refs = refs;
+        this.materials = materials;
+    }
+
+    static MaterialPrefixIndex of(List<MaterialResponse> materials) {
+        List<Key> entries = new ArrayList<>();
+        for (int i = 0; i < materials.size(); i++) {
+            MaterialResponse m = materials.get(i);
+            Set<String> keysOfMaterial = new HashSet<>();
+            addWithWords(keysOfMaterial, m.getName());
+            addWithWords(keysOfMaterial, m.getSeller());
+            add(keysOfMaterial, m.getMarketId());
+            for (String key : keysOfMaterial) {
+                entries.add(new Key(key, i));
+            }
+        }
+        Key[] sorted = entries.toArray(Key[]::new);
+        Arrays.sort(sorted, (a, b) -> {
+            int byKey = a.key().compareTo(b.key());
+            return byKey != 0 ? byKey : Integer.compare(a.ref(), b.ref());
+        });
+        String[] keys = new String[sorted.length];
+        int[] refs = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            keys[i] = sorted[i].key();
+            refs[i] = sorted[i].ref();
+        }
+        return new MaterialPrefixIndex(keys, refs, materials);
+    }
+
+    /**
+     * Up to {@code limit} distinct materials with a key starting with
+     * {@code prefix} (case-insensitive), in alphabetical order of the
+     * matching key, so an exact match comes first.
+     */
+    public List<MaterialResponse> lookup(String prefix, int limit) {
+        String p = normalize(prefix);
+        if (p.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        List<MaterialResponse> result = new ArrayList<>(Math.min(limit, 16));
+        Set<Integer> seen = new HashSet<>();
+        for (int i = lowerBound(p); i < keys.length && result.size() < limit && keys[i].startsWith(p); i++) {
+            if (seen.add(refs[i])) {
+                result.add(materials.get(refs[i]));
+            }
+        }
+        return result;
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private int lowerBound(String p) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(p) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static void add(Set<String> keys, String value) {
+        String key = normalize(value);
+        if (!key.isEmpty()) {
+            keys.add(key);
+        }
+    }
+
+    private static void addWithWords(Set<String> keys, String value) {
+        add(keys, value);
+        if (value != null) {
+            for (String word : value.split("[\\s\\-_/,.()]+")) {
+                add(keys, word);
+            }
+        }
+    }
+
+    private record Key(String key, int ref) {}
+}
@@ -2,30 +2,72 @@ package com.example.pmapp.service;
 
 
 import com.example.pmapp.MaterialMapper;
+import com.example.pmapp.cache.CacheRegion;
+import com.example.pmapp.cache.InvalidationBus;
 import com.example.pmapp.dto.MaterialRequest;
 import com.example.pmapp.dto.MaterialResponse;
 import com.example.pmapp.model.Material;
 import com.example.pmapp.model.Role;
-import com.example.pmapp.model.User;
 import com.example.pmapp.repository.MaterialRepository;
+import com.example.pmapp.security.AuthenticatedUser;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 @Service
+@Timed(value = "pmapp.service", description = "Service method timings, tagged by class and method")
 public class MaterialService {
+    // Shorter texts have too few trigrams to match anything meaningful
+    private static final int MIN_FUZZY_LENGTH = 3;
+
     private final MaterialRepository repo;
-    public MaterialService(MaterialRepository repo) { this.repo = repo; }
+    private final MaterialCatalog catalog;
+    private final InvalidationBus invalidationBus;
+    private final SyncService syncService;
+
+    public MaterialService(MaterialRepository repo, MaterialCatalog catalog, InvalidationBus invalidationBus,
+                           SyncService syncService) {
+        this.repo = repo;
+        this.catalog = catalog;
+        this.invalidationBus = invalidationBus;
+        this.syncService = syncService;
+    }
 
-    @Transactional(readOnly = true)
     public List<MaterialResponse> listMaterials() {
-        return repo.findAll().stream().map(this::toResponse).toList();
+        return catalog.snapshot().materials();
+    }
+
+    /**
+     * The whole catalog as served by GET /api/materials: pre-serialized
+     * JSON plus its ETag.  Rebuilt only after materials are written.
+     */
+    public MaterialCatalog.Snapshot catalog() {
+        return catalog.snapshot();
+    }
+
+    /**
+     * Autocomplete for the BOM editor.  Prefixes of a material's name, a
+     * word in it, its market id or seller are answered from the in-memory
+     * catalog index.  When nothing matches, a text of at least
+     * {@value #MIN_FUZZY_LENGTH} characters falls back to a trigram
+     * similarity search in the database, which tolerates typos.
+     */
+    public List<MaterialResponse> suggest(String prefix, int limit) {
+        List<MaterialResponse> hits = catalog.snapshot().prefixIndex().lookup(prefix, limit);
+        String text = MaterialPrefixIndex.normalize(prefix);
+        if (!hits.isEmpty() || text.length() < MIN_FUZZY_LENGTH) {
+            return hits;
+        }
+        return repo.findSimilar(text, limit).stream()
+                .map(MaterialMapper::toResponse)
+                .toList();
     }
 
     // MaterialService.java (snippet)
     @Transactional
-    public MaterialResponse createMaterial(User caller, MaterialRequest request) {
+    public MaterialResponse createMaterial(AuthenticatedUser caller, MaterialRequest request) {
         if (caller.getRole() != Role.ADMIN) {
             throw new IllegalArgumentException("Only administrators can create materials");
         }
@@ -37,6 +79,7 @@ public class MaterialService {
         m.setMaterialPicture(request.getPictureUrl());
 
         m = repo.save(m);
+        invalidationBus.publish(CacheRegion.MATERIALS, m.getId());
         return MaterialMapper.toResponse(m);
     }
 
@@ -55,17 +98,12 @@ public class MaterialService {
 
 
     @Transactional
-    public void deleteMaterial(User caller, Long id) {
+    public void deleteMaterial(AuthenticatedUser caller, Long id) {
         if (caller.getRole() != Role.ADMIN) {
             throw new IllegalArgumentException("Only administrators can delete materials");
         }
         repo.deleteById(id);
+        syncService.materialDeleted(id);
+        invalidationBus.publish(CacheRegion.MATERIALS, id);
     }
-
-    private MaterialResponse toResponse(Material m) {
-        System.out.println("Material ID: " + m.getId() + ", Seller: " + m.getSeller() + ", Material Picture: " + m.getMaterialPicture());
-        return new MaterialResponse(
-                m.getId(), m.getName(), m.getMarketId(), m.getSeller(), m.getMaterialPicture()
-        );
-    }
-}
\ No newline at end of file
+}
@@ -1,91 +1,224 @@
 package com.example.pmapp.service;
 
+import com.example.pmapp.audit.AuditLog;
+import com.example.pmapp.dto.ProjectMaterialDeltaRequest;
 import com.example.pmapp.dto.ProjectMaterialRequest;
 import com.example.pmapp.dto.ProjectMaterialResponse;
+import com.example.pmapp.events.ChangeFeed;
 import com.example.pmapp.model.*;
 import com.example.pmapp.repository.MaterialRepository;
 import com.example.pmapp.repository.ProjectMaterialRepository;
 import com.example.pmapp.repository.ProjectRepository;
+import com.example.pmapp.security.AuthenticatedUser;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
+@Timed(value = "pmapp.service", description = "Service method timings, tagged by class and method")
 public class ProjectMaterialService {
 
     private final ProjectRepository projectRepository;
     private final MaterialRepository materialRepository;
     private final ProjectMaterialRepository projectMaterialRepository;
+    private final ProjectOwnerCache projectOwners;
+    private final ChangeFeed changeFeed;
+    private final SyncService syncService;
+    private final AuditLog auditLog;
+    private final int maxBatchSize;
 
     public ProjectMaterialService(ProjectRepository projectRepository,
                                   MaterialRepository materialRepository,
-                                  ProjectMaterialRepository projectMaterialRepository) {
+                                  ProjectMaterialRepository projectMaterialRepository,
+                                  ProjectOwnerCache projectOwners,
+                                  ChangeFeed changeFeed,
+                                  SyncService syncService,
+                                  AuditLog auditLog,
+                                  @Value("${app.project-materials.batch.max-size:1000}") int maxBatchSize) {
         this.projectRepository = projectRepository;
+        this.projectOwners = projectOwners;
+        this.changeFeed = changeFeed;
+        this.syncService = syncService;
+        this.auditLog = auditLog;
         this.materialRepository = materialRepository;
         this.projectMaterialRepository = projectMaterialRepository;
+        this.maxBatchSize = maxBatchSize;
     }
 
     @Transactional(readOnly = true)
-    public List<ProjectMaterialResponse> list(User caller, Integer projectId) {
-        Project project = getAndAuthorize(caller, projectId);
-        return projectMaterialRepository.findByProject(project)
-                .stream()
-                .map(this::toResponse)
-                .toList();
+    public List<ProjectMaterialResponse> list(AuthenticatedUser caller, Integer projectId) {
+        authorize(caller, projectId);
+        return projectMaterialRepository.findResponsesByProjectId(projectId);
     }
 
     @Transactional
-    public ProjectMaterialResponse upsert(User caller, Integer projectId, ProjectMaterialRequest req) {
+    public ProjectMaterialResponse upsert(AuthenticatedUser caller, Integer projectId, ProjectMaterialRequest req) {
         if (req.getMaterialId() == null) throw new IllegalArgumentException("materialId required");
         if (req.getAmount() < 0) throw new IllegalArgumentException("amount must be >= 0");
 
-        Project project = getAndAuthorize(caller, projectId);
-        Material material = materialRepository.findById(req.getMaterialId())
-                .orElseThrow(() -> new IllegalArgumentException("Material not found"));
-
-        ProjectMaterial pm = projectMaterialRepository
-                .findByProjectAndMaterial(project, material)
-                .orElseGet(() -> {
-                    ProjectMaterial n = new ProjectMaterial();
-                    n.setProject(project);
-                    n.setMaterial(material);
-                    return n;
-                });
-
-        pm.setAmount(req.getAmount());
-        pm = projectMaterialRepository.save(pm);
-        return toResponse(pm);
+        Integer ownerId = authorize(caller, projectId);
+        ProjectMaterialRepository.UpsertedRow row =
+                projectMaterialRepository.upsertAmount(projectId, req.getMaterialId(), req.getAmount());
+        if (row == null) {
+            throw notWritten(projectId, req.getMaterialId());
+        }
+        ProjectMaterialResponse response = toResponse(row);
+        changeFeed.projectMaterialUpserted(ownerId, projectId, response);
+        auditLog.record(caller, "project-material.upserted", "PROJECT_MATERIAL", response.getId(),
+                Map.of("projectId", projectId, "materialId", response.getMaterialId(), "amount", response.getAmount()));
+        return response;
+    }
+
+    /**
+     * Add {@code delta} (which may be negative) to the amount of a
+     * material on a project in one atomic statement, creating the link
+     * if it does not exist yet.  Amounts never drop below zero, so a
+     * delta of zero or less on a material the project does not have yet
+     * is refused.
+     */
+    @Transactional
+    public ProjectMaterialResponse addAmount(AuthenticatedUser caller, Integer projectId, ProjectMaterialDeltaRequest req) {
+        if (req.getMaterialId() == null) throw new IllegalArgumentException("materialId required");
+        if (!Double.isFinite(req.getDelta())) throw new IllegalArgumentException("delta must be a finite number");
+
+        Integer ownerId = authorize(caller, projectId);
+        ProjectMaterialRepository.UpsertedRow row =
+                projectMaterialRepository.addAmount(projectId, req.getMaterialId(), req.getDelta());
+        if (row == null) {
+            throw notWritten(projectId, req.getMaterialId());
+        }
+        ProjectMaterialResponse response = toResponse(row);
+        changeFeed.projectMaterialUpserted(ownerId, projectId, response);
+        auditLog.record(caller, "project-material.amount-added", "PROJECT_MATERIAL", response.getId(),
+                Map.of("projectId", projectId, "materialId", response.getMaterialId(),
+                        "delta", req.getDelta(), "amount", response.getAmount()));
+        return response;
     }
 
+    /**
+     * Set the amounts of many materials on one project in a single
+     * transaction.  The caller is authorized once, all materials are
+     * resolved with one IN query, existing links with another, and the
+     * resulting inserts and updates are flushed as JDBC batches.  If the
+     * same material appears more than once, the last amount wins.  A link
+     * inserted concurrently by another request makes the whole batch fail
+     * with a DataIntegrityViolationException; the client may retry.
+     */
     @Transactional
-    public void delete(User caller, Integer projectId, Integer projectMaterialId) {
-        ProjectMaterial pm = projectMaterialRepository.findById(projectMaterialId)
+    public List<ProjectMaterialResponse> upsertAll(AuthenticatedUser caller, Integer projectId,
+                                                   List<ProjectMaterialRequest> requests) {
+        if (requests == null || requests.isEmpty()) throw new IllegalArgumentException("at least one item required");
+        if (requests.size() > maxBatchSize) throw new IllegalArgumentException("at most " + maxBatchSize + " items allowed");
+        Map<Long, Double> amounts = new LinkedHashMap<>();
+        for (ProjectMaterialRequest req : requests) {
+            if (req == null || req.getMaterialId() == null) throw new IllegalArgumentException("materialId required");
+            if (req.getAmount() < 0) throw new IllegalArgumentException("amount must be >= 0");
+            amounts.put(req.getMaterialId(), req.getAmount());
+        }
+
+        Integer ownerId = authorize(caller, projectId);
+        Project project = projectRepository.getReferenceById(projectId);
+        Map<Long, Material> materials = materialRepository.findAllById(amounts.keySet()).stream()
+                .collect(Collectors.toMap(Material::getId, Function.identity()));
+        if (materials.size() != amounts.size()) {
+            throw new IllegalArgumentException("Material not found");
+        }
+        Map<Long, ProjectMaterial> existing = projectMaterialRepository
+                .findByProjectIdAndMaterialIdIn(projectId, amounts.keySet()).stream()
+                .collect(Collectors.toMap(pm -> pm.getMaterial().getId(), Function.identity()));
+
+        List<ProjectMaterial> links = new ArrayList<>(amounts.size());
+        amounts.forEach((materialId, amount) -> {
+            ProjectMaterial pm = existing.get(materialId);
+            if (pm == null) {
+                pm = new ProjectMaterial();
+                pm.setProject(project);
+                pm.setMaterial(materials.get(materialId));
+            }
+            pm.setAmount(amount);
+            links.add(pm);
+        });
+        // Flush here so a concurrent insert of the same pair surfaces from this call
+        List<ProjectMaterialResponse> responses = projectMaterialRepository.saveAllAndFlush(links).stream()
+                .map(this::toResponse)
+                .toList();
+        // One event for the whole batch rather than one per link
+        changeFeed.projectMaterialsChanged(ownerId, projectId);
+        // One audit entry for the batch: the project and the amount set per material id
+        auditLog.record(caller, "project-materials.upserted", "PROJECT", projectId, Map.of("amounts", amounts));
+        return responses;
+    }
+
+    @Transactional
+    public void delete(AuthenticatedUser caller, Integer projectId, Integer projectMaterialId) {
+        ProjectMaterial pm = projectMaterialRepository.findWithProjectById(projectMaterialId)
                 .orElseThrow(() -> new IllegalArgumentException("Project material not found"));
 
         // Ensure the path projectId matches the entity and caller has rights
         if (!pm.getProject().getId().equals(projectId)) {
             throw new IllegalArgumentException("Mismatched project id");
         }
-        authorize(caller, pm.getProject());
+        Integer ownerId = authorize(caller, pm.getProject());
         projectMaterialRepository.delete(pm);
+        syncService.projectMaterialDeleted(ownerId, projectId, projectMaterialId);
+        changeFeed.projectMaterialDeleted(ownerId, projectId, projectMaterialId);
+        auditLog.record(caller, "project-material.deleted", "PROJECT_MATERIAL", projectMaterialId,
+                Map.of("projectId", projectId, "materialId", pm.getMaterial().getId(), "amount", pm.getAmount()));
     }
 
     /* helpers */
 
-    private Project getAndAuthorize(User caller, Integer projectId) {
-        Project project = projectRepository.findById(projectId)
+    /** Check access to a project and return its owner's id. */
+    private Integer authorize(AuthenticatedUser caller, Integer projectId) {
+        Integer ownerId = projectOwners.ownerOf(projectId)
                 .orElseThrow(() -> new IllegalArgumentException("Project not found"));
-        authorize(caller, project);
-        return project;
+        return authorizeOwner(caller, ownerId);
     }
 
-    private void authorize(User caller, Project project) {
+    private Integer authorize(AuthenticatedUser caller, Project project) {
+        // getId() on the lazy owner proxy does not trigger a load
+        return authorizeOwner(caller, project.getUser() != null ? project.getUser().getId() : null);
+    }
+
+    /**
+     * Why a single-statement upsert returned no row.  The statement has
+     * already run, so these lookups only happen on the error path.
+     */
+    private IllegalArgumentException notWritten(Integer projectId, Long materialId) {
+        if (!materialRepository.existsById(materialId)) {
+            return new IllegalArgumentException("Material not found");
+        }
+        if (!projectRepository.existsById(projectId)) {
+            return new IllegalArgumentException("Project not found");
+        }
+        return new IllegalArgumentException("Project material not found");
+    }
+
+    private Integer authorizeOwner(AuthenticatedUser caller, Integer ownerId) {
         boolean admin = caller.getRole() == Role.ADMIN;
-        boolean owner = project.getUser() != null && project.getUser().getId().equals(caller.getId());
+        boolean owner = ownerId != null && ownerId.equals(caller.getId());
         if (!(admin || owner)) {
             throw new IllegalArgumentException("Forbidden");
         }
+        return ownerId;
+    }
+
+    private ProjectMaterialResponse toResponse(ProjectMaterialRepository.UpsertedRow row) {
+        return new ProjectMaterialResponse(
+                row.getId(),
+                row.getMaterialId(),
+                row.getMaterialName(),
+                row.getMarketId(),
+                row.getAmount()
+        );
     }
 
     private ProjectMaterialResponse toResponse(ProjectMaterial pm) {
@@ -0,0 +1,85 @@
+package com.example.pmapp.service;
+
+import com.example.pmapp.cache.CacheInvalidationEvent;
+import com.example.pmapp.cache.CacheRegion;
+import com.example.pmapp.repository.ProjectRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded, read-through cache of project id to owner id.  A project never
+ * changes owner, so entries only have to go when the project (or its
+ * owner) is deleted; both are announced through the invalidation bus and
+ * evicted on every node.  A user invalidation drops only that user's
+ * projects, so ordinary profile changes leave the rest of the cache warm.
+ */
+@Component
+public class ProjectOwnerCache {
+    private final ProjectRepository projectRepository;
+    private final ConcurrentHashMap<Integer, Integer> owners = new ConcurrentHashMap<>();
+    private final int maxEntries;
+
+    public ProjectOwnerCache(ProjectRepository projectRepository,
+                             @Value("${app.projects.owner-cache.max-entries:10000}") int maxEntries) {
+        this.projectRepository = projectRepository;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Owner id of the given project, or empty if the project does not exist.
+     */
+    public Optional<Integer> ownerOf(Integer projectId) {
+        Integer ownerId = owners.get(projectId);
+        if (ownerId != null) {
+            return Optional.of(ownerId);
+        }
+        Optional<Integer> loaded = projectRepository.findOwnerIdById(projectId);
+        if (loaded.isPresent() && maxEntries > 0) {
+            if (owners.size() >= maxEntries) {
+                evict();
+            }
+            owners.put(projectId, loaded.get());
+        }
+        return loaded;
+    }
+
+    @EventListener
+    public void onInvalidation(CacheInvalidationEvent event) {
+        if (event.region() == CacheRegion.PROJECTS && !event.isRegionWide()) {
+            try {
+                owners.remove(Integer.valueOf(event.key()));
+            } catch (NumberFormatException e) {
+                owners.clear();
+            }
+        } else if (event.region() == CacheRegion.USERS && !event.isRegionWide()) {
+            // Deleting a user removes their projects; renames and password changes do not
+            // change ownership, so dropping just this user's entries is enough either way
+            try {
+                evictOwner(Integer.valueOf(event.key()));
+            } catch (NumberFormatException e) {
+                owners.clear();
+            }
+        } else if (event.appliesTo(CacheRegion.PROJECTS) || event.appliesTo(CacheRegion.USERS)) {
+            owners.clear();
+        }
+    }
+
+    /** Drop every cached project owned by the given user. */
+    private void evictOwner(Integer userId) {
+        owners.values().removeIf(userId::equals);
+    }
+
+    private void evict() {
+        int toDrop = owners.size() - maxEntries + Math.max(1, maxEntries / 10);
+        Iterator<Integer> it = owners.keySet().iterator();
+        while (toDrop-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+}
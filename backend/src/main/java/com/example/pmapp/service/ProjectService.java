@@ -1,19 +1,43 @@
 package com.example.pmapp.service;
 
+import com.example.pmapp.audit.AuditLog;
+import com.example.pmapp.cache.CacheRegion;
+import com.example.pmapp.cache.InvalidationBus;
+import com.example.pmapp.dto.ProjectCursor;
+import com.example.pmapp.dto.ProjectExport;
+import com.example.pmapp.dto.ProjectMaterialResponse;
+import com.example.pmapp.dto.ProjectPage;
 import com.example.pmapp.dto.ProjectRequest;
 import com.example.pmapp.dto.ProjectResponse;
+import com.example.pmapp.dto.ProjectSearchCursor;
+import com.example.pmapp.events.ChangeFeed;
 import com.example.pmapp.model.Project;
 import com.example.pmapp.model.Role;
-import com.example.pmapp.model.User;
+import com.example.pmapp.repository.ProjectExportRow;
+import com.example.pmapp.repository.ProjectFilter;
 import com.example.pmapp.repository.ProjectRepository;
+import com.example.pmapp.repository.ProjectSearchHit;
+import com.example.pmapp.repository.ProjectSearchResult;
 import com.example.pmapp.repository.UserRepository;
+import com.example.pmapp.security.AuthenticatedUser;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Service encapsulating core project operations.  Handles conversion
@@ -21,29 +45,143 @@ import java.util.stream.Collectors;
  * ownership/role based rules.
  */
 @Service
+@Timed(value = "pmapp.service", description = "Service method timings, tagged by class and method")
 public class ProjectService {
     private final ProjectRepository projectRepository;
     private final UserRepository userRepository;
+    private final InvalidationBus invalidationBus;
+    private final ChangeFeed changeFeed;
+    private final SyncService syncService;
+    private final AuditLog auditLog;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final ObjectWriter exportWriter;
+    private final int exportFetchSize;
+    private final int searchMaxCandidates;
 
-    public ProjectService(ProjectRepository projectRepository, UserRepository userRepository) {
+    public ProjectService(ProjectRepository projectRepository,
+                          UserRepository userRepository,
+                          InvalidationBus invalidationBus,
+                          ChangeFeed changeFeed,
+                          SyncService syncService,
+                          AuditLog auditLog,
+                          ObjectMapper objectMapper,
+                          @Value("${app.projects.page.default-size:100}") int defaultPageSize,
+                          @Value("${app.projects.page.max-size:500}") int maxPageSize,
+                          @Value("${app.projects.export.fetch-size:500}") int exportFetchSize,
+                          @Value("${app.projects.search.max-candidates:1000}") int searchMaxCandidates) {
         this.projectRepository = projectRepository;
         this.userRepository = userRepository;
+        this.invalidationBus = invalidationBus;
+        this.changeFeed = changeFeed;
+        this.syncService = syncService;
+        this.auditLog = auditLog;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        // Let the generator's buffer decide when to write instead of flushing after every project
+        this.exportWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.exportFetchSize = exportFetchSize;
+        this.searchMaxCandidates = searchMaxCandidates;
     }
 
     /**
-     * Retrieve a list of projects for the given user.  Admins can
-     * retrieve all projects, whereas regular users will only see
-     * projects they own.
+     * Retrieve one page of projects for the given user, newest first.
+     * Admins can see all projects and may filter by owner, whereas
+     * regular users will only see projects they own regardless of the
+     * requested owner.  Pages are addressed by the opaque cursor returned
+     * with the previous page; a null limit selects the default page size.
      */
     @Transactional(readOnly = true)
-    public List<ProjectResponse> getProjectsFor(User user) {
-        List<Project> projects;
-        if (user.getRole() == Role.ADMIN) {
-            projects = projectRepository.findAll();
-        } else {
-            projects = projectRepository.findByUser(user);
+    public ProjectPage getProjectsFor(AuthenticatedUser user, ProjectFilter filter, String cursor, Integer limit) {
+        if (user.getRole() != Role.ADMIN) {
+            filter = filter.withOwnerId(user.getId());
+        }
+        int pageSize = pageSize(limit);
+        // Fetch one extra row to learn whether another page follows
+        List<ProjectResponse> projects = projectRepository.findPage(filter, ProjectCursor.decode(cursor), pageSize + 1);
+        String nextCursor = null;
+        if (projects.size() > pageSize) {
+            projects = projects.subList(0, pageSize);
+            nextCursor = ProjectCursor.after(projects.get(pageSize - 1)).encode();
+        }
+        return new ProjectPage(projects, nextCursor, false);
+    }
+
+    /**
+     * Full-text search over the names and descriptions of the projects
+     * visible to the user, best match first.  Pagination works as in
+     * {@link #getProjectsFor}, with a cursor over {@code (rank, id)}.
+     * Only the newest {@code app.projects.search.max-candidates} matches
+     * are ranked, which keeps very common terms as fast as rare ones; the
+     * page says when older matches were left out.
+     */
+    @Transactional(readOnly = true)
+    public ProjectPage searchProjects(AuthenticatedUser user, String query, Integer ownerId, String cursor, Integer limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query required");
+        }
+        if (user.getRole() != Role.ADMIN) {
+            ownerId = user.getId();
+        }
+        int pageSize = pageSize(limit);
+        ProjectSearchResult result = projectRepository.search(query.trim(), ownerId,
+                ProjectSearchCursor.decode(cursor), pageSize + 1, searchMaxCandidates);
+        List<ProjectSearchHit> hits = result.hits();
+        String nextCursor = null;
+        if (hits.size() > pageSize) {
+            hits = hits.subList(0, pageSize);
+            ProjectSearchHit last = hits.get(pageSize - 1);
+            nextCursor = new ProjectSearchCursor(last.rank(), last.project().getId(), result.ceiling()).encode();
+        }
+        return new ProjectPage(hits.stream().map(ProjectSearchHit::project).toList(), nextCursor, result.truncated());
+    }
+
+    private int pageSize(Integer limit) {
+        return limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+    }
+
+    /**
+     * Write every project visible to the user, each with its materials, to
+     * {@code out} as newline-delimited JSON.  Rows come from one joined,
+     * forward-only query and each project is written as soon as its last
+     * row has been read, so memory use does not grow with the number of
+     * projects.  The same visibility rules as {@link #getProjectsFor} apply.
+     */
+    @Transactional(readOnly = true)
+    public void exportProjects(AuthenticatedUser user, ProjectFilter filter, OutputStream out) throws IOException {
+        if (user.getRole() != Role.ADMIN) {
+            filter = filter.withOwnerId(user.getId());
         }
-        return projects.stream().map(this::toResponse).collect(Collectors.toList());
+        try (Stream<ProjectExportRow> rows = projectRepository.streamExport(filter, exportFetchSize);
+             JsonGenerator json = exportWriter.createGenerator(out)) {
+            json.setRootValueSeparator(null);
+            ProjectExportRow current = null;
+            List<ProjectMaterialResponse> materials = new ArrayList<>();
+            Iterator<ProjectExportRow> it = rows.iterator();
+            while (it.hasNext()) {
+                ProjectExportRow row = it.next();
+                if (current != null && !current.projectId().equals(row.projectId())) {
+                    writeExportLine(json, current, materials);
+                    materials = new ArrayList<>();
+                }
+                current = row;
+                if (row.projectMaterialId() != null) {
+                    materials.add(new ProjectMaterialResponse(row.projectMaterialId(), row.materialId(),
+                            row.materialName(), row.marketId(), row.amount()));
+                }
+            }
+            if (current != null) {
+                writeExportLine(json, current, materials);
+            }
+        }
+    }
+
+    private void writeExportLine(JsonGenerator json, ProjectExportRow row,
+                                 List<ProjectMaterialResponse> materials) throws IOException {
+        ProjectResponse project = new ProjectResponse(row.projectId(), row.username(), row.name(),
+                row.description(), row.createdAt(), row.estimatedEnd(), row.finishedAt());
+        exportWriter.writeValue(json, new ProjectExport(project, materials));
+        json.writeRaw('\n');
     }
 
     /**
@@ -52,9 +190,10 @@ public class ProjectService {
      * other users.
      */
     @Transactional
-    public ProjectResponse createProject(User user, ProjectRequest request) {
+    public ProjectResponse createProject(AuthenticatedUser user, ProjectRequest request) {
         Project project = new Project();
-        project.setUser(user);
+        // A reference is enough to set the foreign key; no users query needed
+        project.setUser(userRepository.getReferenceById(user.getId()));
         project.setName(request.getName());
         project.setDescription(request.getDescription());
         // Parse optional dates
@@ -69,7 +208,10 @@ public class ProjectService {
             } catch (DateTimeParseException ignore) {}
         }
         project = projectRepository.save(project);
-        return toResponse(project);
+        ProjectResponse response = toResponse(project, user.getUsername());
+        changeFeed.projectCreated(user.getId(), response);
+        auditLog.record(user, "project.created", "PROJECT", response.getId(), response);
+        return response;
     }
 
     /**
@@ -78,27 +220,32 @@ public class ProjectService {
      * caller is not authorised, an IllegalArgumentException is thrown.
      */
     @Transactional
-    public void deleteProject(User caller, Integer id) {
+    public void deleteProject(AuthenticatedUser caller, Integer id) {
         Project project = projectRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Project not found"));
         if (!caller.getRole().equals(Role.ADMIN) && !project.getUser().getId().equals(caller.getId())) {
             throw new IllegalArgumentException("Forbidden");
         }
         projectRepository.delete(project);
+        syncService.projectDeleted(project.getUser().getId(), id);
+        invalidationBus.publish(CacheRegion.PROJECTS, id);
+        changeFeed.projectDeleted(project.getUser().getId(), id);
+        auditLog.record(caller, "project.deleted", "PROJECT", id, Map.of("name", project.getName()));
     }
 
     private ProjectResponse toResponse(Project project) {
-        String createdAt = project.getCreatedAt() != null ? project.getCreatedAt().toString() : null;
-        String estimatedEnd = project.getEstimatedEnd() != null ? project.getEstimatedEnd().toString() : null;
-        String finishedAt = project.getFinishedAt() != null ? project.getFinishedAt().toString() : null;
+        return toResponse(project, project.getUser().getUsername());
+    }
+
+    private ProjectResponse toResponse(Project project, String ownerUsername) {
         return new ProjectResponse(
                 project.getId(),
-                project.getUser().getUsername(),
+                ownerUsername,
                 project.getName(),
                 project.getDescription(),
-                createdAt,
-                estimatedEnd,
-                finishedAt
+                project.getCreatedAt(),
+                project.getEstimatedEnd(),
+                project.getFinishedAt()
         );
     }
 
@@ -109,8 +256,8 @@ public class ProjectService {
      * cleared on the project.  Dates are parsed from ISO‑8601 strings.
      */
     @Transactional
-    public ProjectResponse updateProject(User caller, Integer id, ProjectRequest request) {
-        Project project = projectRepository.findById(id)
+    public ProjectResponse updateProject(AuthenticatedUser caller, Integer id, ProjectRequest request) {
+        Project project = projectRepository.findWithUserById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Project not found"));
         // enforce ownership/admin access
         if (!caller.getRole().equals(Role.ADMIN) && !project.getUser().getId().equals(caller.getId())) {
@@ -144,6 +291,9 @@ public class ProjectService {
             project.setFinishedAt(null);
         }
         project = projectRepository.save(project);
-        return toResponse(project);
+        ProjectResponse response = toResponse(project);
+        changeFeed.projectUpdated(project.getUser().getId(), response);
+        auditLog.record(caller, "project.updated", "PROJECT", id, response);
+        return response;
     }
 }
\ No newline at end of file
@@ -0,0 +1,202 @@
+package com.example.pmapp.service;
+
+import com.example.pmapp.model.RefreshToken;
+import com.example.pmapp.model.User;
+import com.example.pmapp.repository.RefreshTokenRepository;
+import com.example.pmapp.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Issues and rotates refresh tokens.  A refresh costs one indexed lookup
+ * and a SHA-256, instead of the BCrypt verification a fresh login needs,
+ * so clients can keep access tokens short-lived.
+ *
+ * Tokens are single use.  Presenting a token that was already exchanged
+ * means two parties hold it, so the whole family is revoked and both have
+ * to log in again.  The exception is a token presented again within
+ * {@code app.jwt.refresh.reuse-grace} of its exchange while its successor
+ * is still unused, as happens when two tabs refresh at once or a
+ * response is lost: that client gets the same successor back.  The
+ * successor is kept encrypted with a key derived from the exchanged
+ * token, which is itself only stored as a hash.
+ */
+@Service
+public class RefreshTokenService {
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+    private static final int TOKEN_BYTES = 32;
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    private final RefreshTokenRepository tokens;
+    private final UserRepository users;
+    private final Duration expiration;
+    private final Duration reuseGrace;
+    private final SecureRandom random = new SecureRandom();
+
+    public RefreshTokenService(RefreshTokenRepository tokens,
+                               UserRepository users,
+                               @Value("${app.jwt.refresh.expiration:30d}") Duration expiration,
+                               @Value("${app.jwt.refresh.reuse-grace:10s}") Duration reuseGrace) {
+        this.tokens = tokens;
+        this.users = users;
+        this.expiration = expiration;
+        this.reuseGrace = reuseGrace;
+    }
+
+    /** The user a refresh token was exchanged for, and that token's successor. */
+    public record Rotation(User user, String refreshToken) {}
+
+    /**
+     * Start a new token family for a user who has just proven their
+     * password.  Expired tokens of the same user are purged on the way.
+     */
+    @Transactional
+    public String issue(User user) {
+        LocalDateTime now = LocalDateTime.now();
+        tokens.deleteExpiredOfUser(user.getId(), now);
+        return create(UUID.randomUUID(), user.getId(), now);
+    }
+
+    /**
+     * Exchange a refresh token for its successor.  Returns null when the
+     * token is unknown, expired, revoked or already used; in the last case
+     * the whole family is revoked as well, unless the reuse grace applies.
+     */
+    @Transactional
+    public Rotation rotate(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            return null;
+        }
+        RefreshToken current = tokens.findForUpdateByTokenHash(hash(refreshToken)).orElse(null);
+        if (current == null || current.getRevokedAt() != null) {
+            return null;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (current.getUsedAt() != null) {
+            Rotation retry = sameSuccessor(refreshToken, current, now);
+            if (retry != null) {
+                return retry;
+            }
+            log.warn("Refresh token reused for user {}; revoking token family {}",
+                    current.getUserId(), current.getFamilyId());
+            tokens.revokeFamily(current.getFamilyId(), now);
+            return null;
+        }
+        if (current.getExpiresAt().isBefore(now)) {
+            return null;
+        }
+        User user = users.findById(current.getUserId()).orElse(null);
+        if (user == null) {
+            return null;
+        }
+        current.setUsedAt(now);
+        String successor = create(current.getFamilyId(), user.getId(), now);
+        current.setSuccessor(seal(refreshToken, successor));
+        return new Rotation(user, successor);
+    }
+
+    /**
+     * The successor a token was exchanged for, if it was exchanged within
+     * the reuse grace and the successor has not been used or revoked
+     * since; otherwise null.
+     */
+    private Rotation sameSuccessor(String refreshToken, RefreshToken current, LocalDateTime now) {
+        if (current.getSuccessor() == null || current.getUsedAt().plus(reuseGrace).isBefore(now)) {
+            return null;
+        }
+        String successor = unseal(refreshToken, current.getSuccessor());
+        RefreshToken next = successor != null ? tokens.findForUpdateByTokenHash(hash(successor)).orElse(null) : null;
+        if (next == null || next.getUsedAt() != null || next.getRevokedAt() != null
+                || next.getExpiresAt().isBefore(now)) {
+            return null;
+        }
+        User user = users.findById(current.getUserId()).orElse(null);
+        return user != null ? new Rotation(user, successor) : null;
+    }
+
+    /** Revoke the family of the given token (logout); unknown tokens are ignored. */
+    @Transactional
+    public void revokeFamily(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            return;
+        }
+        tokens.findForUpdateByTokenHash(hash(refreshToken))
+                .ifPresent(t -> tokens.revokeFamily(t.getFamilyId(), LocalDateTime.now()));
+    }
+
+    /** Revoke every refresh token of a user, e.g. after a password change. */
+    @Transactional
+    public void revokeAll(Integer userId) {
+        tokens.revokeAllOfUser(userId, LocalDateTime.now());
+    }
+
+    private String create(UUID familyId, Integer userId, LocalDateTime now) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        tokens.save(new RefreshToken(hash(token), familyId, userId, now.plus(expiration)));
+        return token;
+    }
+
+    /** AES-GCM encryption of the successor under a key only the holder of {@code token} can derive. */
+    private byte[] seal(String token, String successor) {
+        try {
+            byte[] iv = new byte[IV_BYTES];
+            random.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, successorKey(token), new GCMParameterSpec(TAG_BITS, iv));
+            byte[] sealed = cipher.doFinal(successor.getBytes(StandardCharsets.UTF_8));
+            byte[] out = Arrays.copyOf(iv, IV_BYTES + sealed.length);
+            System.arraycopy(sealed, 0, out, IV_BYTES, sealed.length);
+            return out;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM not available", e);
+        }
+    }
+
+    /** The successor sealed by {@link #seal}, or null if it does not decrypt. */
+    private static String unseal(String token, byte[] sealed) {
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, successorKey(token), new GCMParameterSpec(TAG_BITS, sealed, 0, IV_BYTES));
+            return new String(cipher.doFinal(sealed, IV_BYTES, sealed.length - IV_BYTES), StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException e) {
+            return null;
+        }
+    }
+
+    /** Differs from {@link #hash}, which is stored, so the stored hash cannot decrypt the successor. */
+    private static SecretKeySpec successorKey(String token) throws NoSuchAlgorithmException {
+        byte[] key = MessageDigest.getInstance("SHA-256")
+                .digest(("successor:" + token).getBytes(StandardCharsets.UTF_8));
+        return new SecretKeySpec(key, "AES");
+    }
+
+    static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
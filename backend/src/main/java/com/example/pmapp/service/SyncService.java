@@ -0,0 +1,151 @@
+package com.example.pmapp.service;
+
+import com.example.pmapp.dto.SyncCursor;
+import com.example.pmapp.dto.SyncResponse;
+import com.example.pmapp.model.Role;
+import com.example.pmapp.model.SyncTombstone;
+import com.example.pmapp.repository.MaterialRepository;
+import com.example.pmapp.repository.ProjectMaterialRepository;
+import com.example.pmapp.repository.ProjectRepository;
+import com.example.pmapp.repository.SyncTombstoneRepository;
+import com.example.pmapp.security.AuthenticatedUser;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delta sync for clients coming back online.  Every project, project
+ * material and material carries an {@code updated_at} column, and deletes
+ * leave a {@link SyncTombstone}; a sync is one index range scan per table
+ * from the client's cursor, so its cost follows the number of changes
+ * rather than the size of the data.
+ *
+ * The cursor is the database time at which the previous sync began.  A
+ * transaction that wrote before that time may still have been in flight,
+ * so each sync re-reads {@code app.sync.overlap} before the cursor; the
+ * overlap must exceed the longest write transaction and any clock skew
+ * between application nodes.  Clients are told to reload everything when
+ * their cursor predates the tombstone retention or when more than
+ * {@code app.sync.max-changes} rows changed.
+ */
+@Service
+@Timed(value = "pmapp.service", description = "Service method timings, tagged by class and method")
+public class SyncService {
+    private static final long PURGE_INTERVAL_MS = Duration.ofHours(1).toMillis();
+
+    private final ProjectRepository projectRepository;
+    private final ProjectMaterialRepository projectMaterialRepository;
+    private final MaterialRepository materialRepository;
+    private final SyncTombstoneRepository tombstones;
+    private final Duration overlap;
+    private final Duration tombstoneRetention;
+    private final int maxChanges;
+    private final AtomicLong nextPurge = new AtomicLong();
+
+    public SyncService(ProjectRepository projectRepository,
+                       ProjectMaterialRepository projectMaterialRepository,
+                       MaterialRepository materialRepository,
+                       SyncTombstoneRepository tombstones,
+                       @Value("${app.sync.overlap:10s}") Duration overlap,
+                       @Value("${app.sync.tombstone-retention:30d}") Duration tombstoneRetention,
+                       @Value("${app.sync.max-changes:5000}") int maxChanges) {
+        this.projectRepository = projectRepository;
+        this.projectMaterialRepository = projectMaterialRepository;
+        this.materialRepository = materialRepository;
+        this.tombstones = tombstones;
+        this.overlap = overlap;
+        this.tombstoneRetention = tombstoneRetention;
+        this.maxChanges = maxChanges;
+    }
+
+    /**
+     * Ids written or deleted since the cursor, limited to what the caller
+     * may see: admins see every project, other users only their own.  The
+     * material catalog is shared, so its changes go to everyone.  A null
+     * cursor asks for a full reload.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    @Transactional(readOnly = true)
+    public SyncResponse changesSince(AuthenticatedUser caller, String since) {
+        SyncCursor cursor = SyncCursor.decode(since);
+        LocalDateTime now = tombstones.currentTimestamp();
+        String next = new SyncCursor(now).encode();
+        if (cursor == null) {
+            return SyncResponse.reset(next);
+        }
+        LocalDateTime from = cursor.at().minus(overlap);
+        if (from.isBefore(now.minus(tombstoneRetention))) {
+            // Tombstones older than the retention are gone, so deletes could be missed
+            return SyncResponse.reset(next);
+        }
+
+        Integer ownerId = caller.getRole() == Role.ADMIN ? null : caller.getId();
+        // One row past the cap tells us to give up on the delta; each scan stops there
+        int limit = maxChanges + 1;
+        List<Integer> projects = ownerId == null
+                ? projectRepository.findIdsUpdatedSince(from, limit)
+                : projectRepository.findIdsOfOwnerUpdatedSince(ownerId, from, limit);
+        List<ProjectMaterialRepository.LinkRow> links = ownerId == null
+                ? projectMaterialRepository.findLinksUpdatedSince(from, limit)
+                : projectMaterialRepository.findLinksOfOwnerUpdatedSince(ownerId, from, limit);
+        List<Long> materials = materialRepository.findIdsUpdatedSince(from, limit);
+        List<SyncTombstone> deleted = ownerId == null
+                ? tombstones.findSince(from, limit)
+                : tombstones.findSinceForOwner(ownerId, from, limit);
+        if (projects.size() + links.size() + materials.size() + deleted.size() > maxChanges) {
+            return SyncResponse.reset(next);
+        }
+
+        List<Integer> deletedProjects = new ArrayList<>();
+        List<SyncResponse.Link> deletedLinks = new ArrayList<>();
+        List<Long> deletedMaterials = new ArrayList<>();
+        for (SyncTombstone t : deleted) {
+            switch (t.getKind()) {
+                case PROJECT -> deletedProjects.add(t.getEntityId().intValue());
+                case PROJECT_MATERIAL -> deletedLinks.add(new SyncResponse.Link(t.getEntityId().intValue(), t.getProjectId()));
+                case MATERIAL -> deletedMaterials.add(t.getEntityId());
+            }
+        }
+        List<SyncResponse.Link> changedLinks = links.stream()
+                .map(row -> new SyncResponse.Link(row.getId(), row.getProjectId()))
+                .toList();
+        return new SyncResponse(next, false,
+                new SyncResponse.Changes<>(projects, deletedProjects),
+                new SyncResponse.Changes<>(changedLinks, deletedLinks),
+                new SyncResponse.Changes<>(materials, deletedMaterials));
+    }
+
+    /** Record a project deletion.  Its links need no tombstones of their own; clients drop them with the project. */
+    @Transactional
+    public void projectDeleted(Integer ownerId, Integer projectId) {
+        record(new SyncTombstone(SyncTombstone.Kind.PROJECT, projectId.longValue(), ownerId, null));
+    }
+
+    @Transactional
+    public void projectMaterialDeleted(Integer ownerId, Integer projectId, Integer projectMaterialId) {
+        record(new SyncTombstone(SyncTombstone.Kind.PROJECT_MATERIAL, projectMaterialId.longValue(), ownerId, projectId));
+    }
+
+    @Transactional
+    public void materialDeleted(Long materialId) {
+        record(new SyncTombstone(SyncTombstone.Kind.MATERIAL, materialId, null, null));
+    }
+
+    private void record(SyncTombstone tombstone) {
+        tombstones.save(tombstone);
+        // Purge expired tombstones now and then on the write path instead of running a scheduler
+        long now = System.currentTimeMillis();
+        long due = nextPurge.get();
+        if (now >= due && nextPurge.compareAndSet(due, now + PURGE_INTERVAL_MS)) {
+            tombstones.deleteOlderThan(LocalDateTime.now().minus(tombstoneRetention));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.pmapp.service;
+
+import com.example.pmapp.cache.CacheRegion;
+import com.example.pmapp.cache.InvalidationBus;
+import com.example.pmapp.model.TokenRevocation;
+import com.example.pmapp.repository.TokenRevocationRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+/**
+ * Records access token revocations.  Each revocation is persisted, so it
+ * survives restarts, and announced on the invalidation bus so that the
+ * in-memory revocation list of every node picks it up after commit.
+ */
+@Service
+public class TokenRevocationService {
+    private final TokenRevocationRepository revocations;
+    private final InvalidationBus invalidationBus;
+    private final JwtService jwtService;
+
+    public TokenRevocationService(TokenRevocationRepository revocations,
+                                  InvalidationBus invalidationBus,
+                                  JwtService jwtService) {
+        this.revocations = revocations;
+        this.invalidationBus = invalidationBus;
+        this.jwtService = jwtService;
+    }
+
+    /**
+     * Revoke a single token by its "jti" claim.  The entry is kept until
+     * the token's own expiry.
+     */
+    @Transactional
+    public void revoke(String jti, Integer userId, Instant expiresAt) {
+        if (expiresAt.isBefore(Instant.now())) {
+            return;
+        }
+        save(new TokenRevocation(jti, userId, Instant.now(), expiresAt));
+    }
+
+    /**
+     * Revoke every access token of a user issued up to now, e.g. after a
+     * password or username change.  The cut-off is kept for one access
+     * token lifetime, after which every token it covers has expired.
+     */
+    @Transactional
+    public void revokeAllOfUser(Integer userId) {
+        Instant now = Instant.now();
+        save(new TokenRevocation(null, userId, now, now.plusMillis(jwtService.getExpirationMillis())));
+    }
+
+    private void save(TokenRevocation revocation) {
+        revocations.save(revocation);
+        invalidationBus.publish(CacheRegion.TOKEN_REVOCATIONS, revocation.getId());
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.pmapp.service;
 
+import com.example.pmapp.cache.CacheRegion;
+import com.example.pmapp.cache.InvalidationBus;
+import com.example.pmapp.repository.RefreshTokenRepository;
 import com.example.pmapp.repository.UserRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -7,16 +10,28 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class UserService {
     private final UserRepository users;
+    private final RefreshTokenRepository refreshTokens;
+    private final TokenRevocationService tokenRevocations;
+    private final InvalidationBus invalidationBus;
 
-    public UserService(UserRepository users) {
+    public UserService(UserRepository users,
+                       RefreshTokenRepository refreshTokens,
+                       TokenRevocationService tokenRevocations,
+                       InvalidationBus invalidationBus) {
         this.users = users;
+        this.refreshTokens = refreshTokens;
+        this.tokenRevocations = tokenRevocations;
+        this.invalidationBus = invalidationBus;
     }
 
     @Transactional
     public void deleteByUsername(String username) {
         var u = users.findByUsername(username)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        refreshTokens.deleteAllOfUser(u.getId());
+        tokenRevocations.revokeAllOfUser(u.getId());
         users.deleteById(u.getId());
+        invalidationBus.publish(CacheRegion.USERS, u.getId());
     }
 
     @Transactional
@@ -25,6 +40,9 @@ public class UserService {
             // idempotent delete: treat as success if already gone
             return;
         }
+        refreshTokens.deleteAllOfUser(id);
+        tokenRevocations.revokeAllOfUser(id);
         users.deleteById(id);
+        invalidationBus.publish(CacheRegion.USERS, id);
     }
 }
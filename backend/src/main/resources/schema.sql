@@ -0,0 +1,211 @@
+-- Schema additions that Hibernate's ddl-auto cannot express.  This script
+-- runs on every startup after Hibernate has created/updated the tables
+-- (spring.jpa.defer-datasource-initialization), so every statement must
+-- be idempotent.
+
+-- Project listing: keyset pagination on (created_at, id), newest first.
+-- One index per filter shape so that any page costs the same as page 1.
+CREATE INDEX IF NOT EXISTS idx_projects_created_id
+    ON projects (created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_projects_user_created_id
+    ON projects (user_id, created_at DESC, id DESC);
+-- Status filters: OPEN and OVERDUE both scan the unfinished partial index
+-- (the estimated_end cut-off depends on now() and cannot be indexed).
+CREATE INDEX IF NOT EXISTS idx_projects_unfinished_created_id
+    ON projects (created_at DESC, id DESC) WHERE finished_at IS NULL;
+CREATE INDEX IF NOT EXISTS idx_projects_finished_created_id
+    ON projects (created_at DESC, id DESC) WHERE finished_at IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_projects_user_unfinished_created_id
+    ON projects (user_id, created_at DESC, id DESC) WHERE finished_at IS NULL;
+CREATE INDEX IF NOT EXISTS idx_projects_user_finished_created_id
+    ON projects (user_id, created_at DESC, id DESC) WHERE finished_at IS NOT NULL;
+
+-- project_materials ids now come from the pooled project_materials_seq
+-- (allocation size 50) so Hibernate can batch inserts.  Drop the old
+-- identity, if any, and move the sequence past existing rows once.
+ALTER TABLE project_materials ALTER COLUMN id DROP IDENTITY IF EXISTS;
+SELECT setval('project_materials_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM project_materials))
+WHERE (SELECT last_value FROM project_materials_seq) < (SELECT COALESCE(MAX(id), 0) FROM project_materials);
+
+-- At most one link per (project, material); required by the ON CONFLICT
+-- upserts.  Duplicates left over from the old find-then-save upsert are
+-- removed (keeping the newest row) only while the index does not exist yet.
+DELETE FROM project_materials a
+USING project_materials b
+WHERE NOT EXISTS (SELECT 1 FROM pg_indexes WHERE indexname = 'uq_project_materials_project_material')
+  AND a.project_id = b.project_id
+  AND a.material_id = b.material_id
+  AND a.id < b.id;
+CREATE UNIQUE INDEX IF NOT EXISTS uq_project_materials_project_material
+    ON project_materials (project_id, material_id);
+
+-- At most one material per market id; required by the ON CONFLICT merge
+-- of the catalog import.  Databases restored from db/init/schema.dump
+-- have no such constraint and may hold duplicates.  While the index does
+-- not exist yet, the newest material of each market id is kept: links
+-- to the others move to it, links that would then collide on a project
+-- are folded into its newest link with their amounts added, and the
+-- removed rows get sync tombstones.
+WITH material_keeper AS (
+    SELECT id, max(id) OVER (PARTITION BY market_id) AS kept
+    FROM materials
+    WHERE NOT EXISTS (SELECT 1 FROM pg_indexes WHERE indexname = 'uq_materials_market_id')
+), link AS (
+    SELECT pm.id, pm.project_id, max(pm.id) OVER (PARTITION BY pm.project_id, k.kept) AS survivor
+    FROM project_materials pm
+    JOIN material_keeper k ON k.id = pm.material_id
+), folded AS (
+    DELETE FROM project_materials pm
+    USING link l
+    WHERE l.id = pm.id AND l.id <> l.survivor
+    RETURNING pm.id, pm.project_id, pm.amount, l.survivor
+), tombstones AS (
+    INSERT INTO sync_tombstones (kind, entity_id, owner_id, project_id, deleted_at)
+    SELECT 'PROJECT_MATERIAL', f.id, p.user_id, f.project_id, localtimestamp
+    FROM folded f
+    JOIN projects p ON p.id = f.project_id
+)
+UPDATE project_materials pm
+SET amount = pm.amount + f.amount, updated_at = localtimestamp
+FROM (SELECT survivor, sum(amount) AS amount FROM folded GROUP BY survivor) f
+WHERE pm.id = f.survivor;
+WITH material_keeper AS (
+    SELECT id, max(id) OVER (PARTITION BY market_id) AS kept
+    FROM materials
+    WHERE NOT EXISTS (SELECT 1 FROM pg_indexes WHERE indexname = 'uq_materials_market_id')
+)
+UPDATE project_materials pm
+SET material_id = k.kept, updated_at = localtimestamp
+FROM material_keeper k
+WHERE k.id = pm.material_id AND k.id <> k.kept;
+WITH material_keeper AS (
+    SELECT id, max(id) OVER (PARTITION BY market_id) AS kept
+    FROM materials
+    WHERE NOT EXISTS (SELECT 1 FROM pg_indexes WHERE indexname = 'uq_materials_market_id')
+), removed AS (
+    DELETE FROM materials m
+    USING material_keeper k
+    WHERE k.id = m.id AND k.id <> k.kept
+    RETURNING m.id
+)
+INSERT INTO sync_tombstones (kind, entity_id, deleted_at)
+SELECT 'MATERIAL', id, localtimestamp FROM removed;
+CREATE UNIQUE INDEX IF NOT EXISTS uq_materials_market_id
+    ON materials (market_id);
+
+-- Full-text search over name (weight A) and description (weight B).  The
+-- vector is a stored generated column, so it can never drift from the
+-- row, and the GIN index serves the @@ match in ProjectRepositoryImpl.
+ALTER TABLE projects ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('english', coalesce(name, '')), 'A') ||
+        setweight(to_tsvector('english', coalesce(description, '')), 'B')
+    ) STORED;
+CREATE INDEX IF NOT EXISTS idx_projects_search_vector
+    ON projects USING GIN (search_vector);
+
+-- Fuzzy material autocomplete: trigram indexes for the similarity (%)
+-- fallback in MaterialRepository.findSimilar.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_materials_name_trgm
+    ON materials USING GIN (name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_materials_market_id_trgm
+    ON materials USING GIN (market_id gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_materials_seller_trgm
+    ON materials USING GIN (seller gin_trgm_ops);
+
+-- Refresh tokens: lookups go through the unique token_hash index; these
+-- serve revoking a whole family (reuse detection, logout) and all tokens
+-- of a user (password change, purge of expired tokens, user deletion).
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_family
+    ON refresh_tokens (family_id);
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_user_expires
+    ON refresh_tokens (user_id, expires_at);
+
+-- Access token revocations: loaded at startup and purged once expired,
+-- both by expires_at.
+CREATE INDEX IF NOT EXISTS idx_token_revocations_expires
+    ON token_revocations (expires_at);
+
+-- Delta sync (GET /api/sync).  Hibernate adds updated_at as a nullable
+-- column; backfill existing rows, then let inserts that bypass Hibernate
+-- fall back to the default.  Each table gets a range index on updated_at
+-- plus one per owner scope, and tombstones the same on deleted_at.
+UPDATE projects SET updated_at = created_at WHERE updated_at IS NULL;
+ALTER TABLE projects ALTER COLUMN updated_at SET DEFAULT localtimestamp;
+ALTER TABLE projects ALTER COLUMN updated_at SET NOT NULL;
+UPDATE project_materials SET updated_at = localtimestamp WHERE updated_at IS NULL;
+ALTER TABLE project_materials ALTER COLUMN updated_at SET DEFAULT localtimestamp;
+ALTER TABLE project_materials ALTER COLUMN updated_at SET NOT NULL;
+UPDATE materials SET updated_at = localtimestamp WHERE updated_at IS NULL;
+ALTER TABLE materials ALTER COLUMN updated_at SET DEFAULT localtimestamp;
+ALTER TABLE materials ALTER COLUMN updated_at SET NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_projects_updated
+    ON projects (updated_at);
+CREATE INDEX IF NOT EXISTS idx_projects_user_updated
+    ON projects (user_id, updated_at);
+CREATE INDEX IF NOT EXISTS idx_project_materials_updated
+    ON project_materials (updated_at);
+CREATE INDEX IF NOT EXISTS idx_project_materials_project_updated
+    ON project_materials (project_id, updated_at);
+CREATE INDEX IF NOT EXISTS idx_materials_updated
+    ON materials (updated_at);
+CREATE INDEX IF NOT EXISTS idx_sync_tombstones_deleted
+    ON sync_tombstones (deleted_at);
+CREATE INDEX IF NOT EXISTS idx_sync_tombstones_owner_deleted
+    ON sync_tombstones (owner_id, deleted_at);
+
+-- Audit trail, written in batches by AuditLog's drainer thread.  Not a
+-- JPA entity, so the table is created here.  Rows are never changed:
+-- the rules turn UPDATE and DELETE into no-ops.
+CREATE TABLE IF NOT EXISTS audit_log (
+    id bigint GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    occurred_at timestamptz NOT NULL,
+    recorded_at timestamptz NOT NULL DEFAULT now(),
+    actor_id integer,
+    actor_username varchar(255),
+    action varchar(60) NOT NULL,
+    entity_type varchar(30) NOT NULL,
+    entity_id varchar(64) NOT NULL,
+    details jsonb
+);
+CREATE OR REPLACE RULE audit_log_no_update AS ON UPDATE TO audit_log DO INSTEAD NOTHING;
+CREATE OR REPLACE RULE audit_log_no_delete AS ON DELETE TO audit_log DO INSTEAD NOTHING;
+-- Admin listing (GET /api/admin/audit): newest first per filter shape
+CREATE INDEX IF NOT EXISTS idx_audit_log_actor_id
+    ON audit_log (actor_id, id DESC);
+CREATE INDEX IF NOT EXISTS idx_audit_log_entity_id
+    ON audit_log (entity_type, entity_id, id DESC);
+
+-- Idempotency-Key responses (IdempotencyStore).  A row with a null status
+-- is a request still running; expired rows are purged by expires_at.
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    user_id integer NOT NULL,
+    idempotency_key varchar(255) NOT NULL,
+    fingerprint char(64) NOT NULL,
+    status integer,
+    content_type varchar(255),
+    body bytea,
+    created_at timestamptz NOT NULL DEFAULT now(),
+    expires_at timestamptz NOT NULL,
+    PRIMARY KEY (user_id, idempotency_key)
+);
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires
+    ON idempotency_keys (expires_at);
+-- The node running a pending request and how long it may keep it without
+-- renewing; only a row whose lease ran out may be taken over.
+ALTER TABLE idempotency_keys ADD COLUMN IF NOT EXISTS owner uuid;
+ALTER TABLE idempotency_keys ADD COLUMN IF NOT EXISTS locked_until timestamptz;
+
+-- Change-feed stream tickets (StreamTicketStore): single-use, stored by
+-- hash, deleted when redeemed and purged shortly after they expire.
+CREATE TABLE IF NOT EXISTS stream_tickets (
+    ticket_hash char(64) PRIMARY KEY,
+    user_id integer NOT NULL,
+    jti varchar(36),
+    token_issued_at bigint NOT NULL,
+    token_expires_at bigint NOT NULL,
+    expires_at timestamptz NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_stream_tickets_expires
+    ON stream_tickets (expires_at);
@@ -0,0 +1,129 @@
+package com.example.pmapp;
+
+import com.example.pmapp.model.Role;
+import com.example.pmapp.model.User;
+import com.example.pmapp.repository.UserRepository;
+import com.example.pmapp.security.AuthenticatedUser;
+import com.example.pmapp.service.JwtService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * JDBC statements Hibernate prepares for the hot endpoints, including
+ * authentication, with the second-level cache switched on and off.
+ * Authentication loads the user from the store
+ * ({@code app.jwt.stateless=false}), which is the lookup the cache is
+ * for; every request is sent once to warm the caches before it is
+ * measured.
+ */
+class SecondLevelCacheStatementCountTest {
+    private static final String L2_CACHE = "spring.jpa.properties.hibernate.cache.use_second_level_cache";
+    private static final String QUERY_CACHE = "spring.jpa.properties.hibernate.cache.use_query_cache";
+
+    @Nested
+    @TestPropertySource(properties = {L2_CACHE + "=true", QUERY_CACHE + "=true"})
+    class CacheEnabled extends HotEndpoints {
+
+        @Test
+        void authenticatedReadIssuesOnlyItsOwnQuery() throws Exception {
+            // The user comes from the query and entity caches
+            assertThat(statements(listMaterials())).isEqualTo(1);
+        }
+
+        @Test
+        void materialUpsertIssuesOnlyTheUpsert() throws Exception {
+            assertThat(statements(upsertMaterial())).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = {L2_CACHE + "=false", QUERY_CACHE + "=false"})
+    class CacheDisabled extends HotEndpoints {
+
+        @Test
+        void authenticatedReadAlsoLoadsTheUser() throws Exception {
+            assertThat(statements(listMaterials())).isEqualTo(2);
+        }
+
+        @Test
+        void materialUpsertAlsoLoadsTheUser() throws Exception {
+            assertThat(statements(upsertMaterial())).isEqualTo(2);
+        }
+    }
+
+    @SpringBootTest
+    @AutoConfigureMockMvc
+    @TestPropertySource(properties = {
+            "app.jwt.stateless=false",
+            // Keep background sweeps out of the measured window
+            "app.jwt.revocation.sweep-interval=1h"
+    })
+    abstract static class HotEndpoints extends PostgresIntegrationTest {
+        @Autowired
+        MockMvc mvc;
+        @Autowired
+        JdbcTemplate jdbc;
+        @Autowired
+        UserRepository users;
+        @Autowired
+        JwtService jwtService;
+        @Autowired
+        EntityManagerFactory entityManagerFactory;
+
+        String token;
+        int projectId;
+        long materialId;
+
+        @BeforeEach
+        void seed() {
+            String name = "l2-" + UUID.randomUUID();
+            User user = users.save(new User(null, name, "{noop}unused", Role.USER));
+            token = jwtService.generateToken(AuthenticatedUser.from(user));
+            projectId = jdbc.queryForObject("insert into projects (user_id, name, description, created_at, estimated_end)"
+                    + " values (?, ?, 'statement count', now(), now() + interval '1 day') returning id",
+                    Integer.class, user.getId(), name);
+            materialId = jdbc.queryForObject("insert into materials (name, market_id, seller)"
+                    + " values (?, ?, 'Seller') returning id", Long.class, name, name);
+        }
+
+        RequestBuilder listMaterials() {
+            return get("/api/projects/{projectId}/materials", projectId)
+                    .header("Authorization", "Bearer " + token);
+        }
+
+        RequestBuilder upsertMaterial() {
+            return post("/api/projects/{projectId}/materials", projectId)
+                    .header("Authorization", "Bearer " + token)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"materialId\":" + materialId + ",\"amount\":3}");
+        }
+
+        /** Statements prepared for the second of two identical requests. */
+        long statements(RequestBuilder request) throws Exception {
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            mvc.perform(request).andExpect(status().is2xxSuccessful());
+            long before = statistics.getPrepareStatementCount();
+            mvc.perform(request).andExpect(status().is2xxSuccessful());
+            return statistics.getPrepareStatementCount() - before;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.pmapp.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class AuditLogTest {
+    private final AuditLogStore store = mock(AuditLogStore.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<String> inserted = new CopyOnWriteArrayList<>();
+
+    @TempDir
+    Path dir;
+
+    private AuditLog auditLog;
+
+    @AfterEach
+    void stop() {
+        auditLog.stop();
+    }
+
+    @Test
+    void refusedEventIsRejectedAndTheRestOfItsBatchWritten() {
+        // The database refuses any statement containing the "bad" event
+        doAnswer(invocation -> {
+            List<AuditEvent> events = invocation.getArgument(0);
+            if (events.stream().anyMatch(e -> e.action().equals("bad"))) {
+                throw new DataIntegrityViolationException("value too long");
+            }
+            events.forEach(e -> inserted.add(e.entityId()));
+            return null;
+        }).when(store).insert(anyList());
+        auditLog = auditLog();
+        for (int i = 0; i < 5; i++) {
+            auditLog.record(null, i == 2 ? "bad" : "project.updated", "PROJECT", i, null);
+        }
+
+        auditLog.start();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> count("pmapp.audit.rejected") == 1);
+        assertThat(inserted).containsExactly("0", "1", "3", "4");
+        assertThat(count("pmapp.audit.written")).isEqualTo(4);
+
+        // The drainer is not stuck on the refused event
+        auditLog.record(null, "project.updated", "PROJECT", 5, null);
+        await().atMost(Duration.ofSeconds(5)).until(() -> inserted.contains("5"));
+    }
+
+    @Test
+    void transientFailureIsRetriedWithoutDuplicates() {
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (calls.incrementAndGet() <= 2) {
+                throw new QueryTimeoutException("canceling statement due to statement timeout");
+            }
+            List<AuditEvent> events = invocation.getArgument(0);
+            events.forEach(e -> inserted.add(e.entityId()));
+            return null;
+        }).when(store).insert(anyList());
+        auditLog = auditLog();
+        for (int i = 0; i < 3; i++) {
+            auditLog.record(null, "project.updated", "PROJECT", i, null);
+        }
+
+        auditLog.start();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> inserted.size() == 3);
+        assertThat(inserted).containsExactly("0", "1", "2");
+        assertThat(count("pmapp.audit.rejected")).isZero();
+    }
+
+    private AuditLog auditLog() {
+        return new AuditLog(store, new ObjectMapper(), registry, 64, 500, Duration.ofMillis(10),
+                OverflowPolicy.BLOCK, Duration.ofMillis(100), dir.resolve("spill.jsonl").toString(),
+                Duration.ofSeconds(5));
+    }
+
+    private double count(String name) {
+        return registry.counter(name).count();
+    }
+}
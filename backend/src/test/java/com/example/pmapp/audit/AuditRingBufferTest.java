@@ -0,0 +1,115 @@
+package com.example.pmapp.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditRingBufferTest {
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwo() {
+        assertThat(new AuditRingBuffer<Integer>(1).capacity()).isEqualTo(2);
+        assertThat(new AuditRingBuffer<Integer>(8).capacity()).isEqualTo(8);
+        assertThat(new AuditRingBuffer<Integer>(1000).capacity()).isEqualTo(1024);
+    }
+
+    @Test
+    void drainsInOfferOrder() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(8);
+        for (int i = 0; i < 5; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+        List<Integer> sink = new ArrayList<>();
+
+        assertThat(buffer.drainTo(sink, 3)).isEqualTo(3);
+        assertThat(buffer.drainTo(sink, 10)).isEqualTo(2);
+        assertThat(sink).containsExactly(0, 1, 2, 3, 4);
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    void fullBufferRejectsUntilDrained() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+
+        assertThat(buffer.offer(4)).isFalse();
+        assertThat(buffer.size()).isEqualTo(4);
+        buffer.drainTo(new ArrayList<>(), 1);
+        assertThat(buffer.offer(4)).isTrue();
+    }
+
+    @Test
+    void wrapsAroundManyLaps() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(4);
+        List<Integer> sink = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+            if (i % 3 == 2) {
+                buffer.drainTo(sink, Integer.MAX_VALUE);
+            }
+        }
+        buffer.drainTo(sink, Integer.MAX_VALUE);
+
+        assertThat(sink).hasSize(100);
+        for (int i = 0; i < 100; i++) {
+            assertThat(sink.get(i)).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void concurrentProducersLoseNothingAndDuplicateNothing() throws Exception {
+        int producers = 4;
+        int perProducer = 10_000;
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(256);
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            pool.submit(() -> {
+                start.await();
+                for (int i = first; i < first + perProducer; i++) {
+                    // Full: wait for the consumer, as a caller with a blocking policy would
+                    while (!buffer.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+                return null;
+            });
+        }
+
+        start.countDown();
+        Set<Integer> seen = new HashSet<>();
+        int[] lastPerProducer = new int[producers];
+        Arrays.fill(lastPerProducer, -1);
+        List<Integer> batch = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (seen.size() < producers * perProducer && System.nanoTime() < deadline) {
+            batch.clear();
+            buffer.drainTo(batch, 64);
+            for (int value : batch) {
+                assertThat(seen.add(value)).as("duplicate %d", value).isTrue();
+                // Each producer's elements come out in the order it offered them
+                int producer = value / perProducer;
+                assertThat(value).isGreaterThan(lastPerProducer[producer]);
+                lastPerProducer[producer] = value;
+            }
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(seen).hasSize(producers * perProducer);
+        assertThat(buffer.size()).isZero();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.pmapp.events;
+
+import com.example.pmapp.PostgresIntegrationTest;
+import com.example.pmapp.cache.CacheRegion;
+import com.example.pmapp.cache.InvalidationBus;
+import com.example.pmapp.model.Role;
+import com.example.pmapp.model.User;
+import com.example.pmapp.repository.UserRepository;
+import com.example.pmapp.security.AuthenticatedUser;
+import com.example.pmapp.service.JwtService;
+import com.example.pmapp.service.TokenRevocationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Opening the change feed with a stream ticket instead of a token in the
+ * URL, and streams ending when the token behind them is revoked or the
+ * user changes.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class EventStreamAuthTest extends PostgresIntegrationTest {
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired
+    UserRepository users;
+    @Autowired
+    JwtService jwtService;
+    @Autowired
+    TokenRevocationService tokenRevocations;
+    @Autowired
+    InvalidationBus invalidationBus;
+
+    User user;
+    String token;
+
+    @BeforeEach
+    void seed() {
+        user = users.save(new User(null, "events-" + UUID.randomUUID(), "{noop}unused", Role.USER));
+        token = jwtService.generateToken(AuthenticatedUser.from(user));
+    }
+
+    @Test
+    void ticketOpensOneStream() throws Exception {
+        String ticket = ticket();
+
+        mvc.perform(get("/api/events").param("ticket", ticket))
+                .andExpect(request().asyncStarted());
+        mvc.perform(get("/api/events").param("ticket", ticket))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void tokenInUrlIsNotAccepted() throws Exception {
+        mvc.perform(get("/api/events").param("access_token", token))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void ticketOfRevokedTokenIsRefused() throws Exception {
+        String ticket = ticket();
+        tokenRevocations.revokeAllOfUser(user.getId());
+
+        mvc.perform(get("/api/events").param("ticket", ticket))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void streamEndsWhenItsTokenIsRevoked() throws Exception {
+        MvcResult stream = open();
+        assertThatThrownBy(() -> stream.getAsyncResult(100)).isInstanceOf(IllegalStateException.class);
+
+        tokenRevocations.revokeAllOfUser(user.getId());
+
+        assertThatCode(() -> stream.getAsyncResult(5_000)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void streamEndsWhenTheUserChanges() throws Exception {
+        MvcResult stream = open();
+
+        invalidationBus.publish(CacheRegion.USERS, user.getId());
+
+        assertThatCode(() -> stream.getAsyncResult(5_000)).doesNotThrowAnyException();
+    }
+
+    private MvcResult open() throws Exception {
+        return mvc.perform(get("/api/events").header("Authorization", "Bearer " + token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private String ticket() throws Exception {
+        String body = mvc.perform(post("/api/events/tickets").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return JSON.readTree(body).path("ticket").asText();
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.pmapp.idempotency;
+
+import com.example.pmapp.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Claims on idempotency keys, including keys held by a request on
+ * another node, which the tests stand in for by writing the pending row
+ * directly.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "app.idempotency.wait-timeout=300ms",
+        "app.idempotency.lease=1s"
+})
+class IdempotencyStoreTest extends PostgresIntegrationTest {
+    private static final String FINGERPRINT = "a".repeat(64);
+    private static final String OTHER_FINGERPRINT = "b".repeat(64);
+    private static final StoredResponse CREATED =
+            new StoredResponse(201, "application/json", "{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+
+    @Autowired
+    IdempotencyStore store;
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Test
+    void firstRequestRunsAndRetriesReplayItsResponse() {
+        IdempotencyStore.Key key = newKey();
+        IdempotencyStore.Outcome first = store.begin(key, FINGERPRINT);
+        assertThat(first).isInstanceOf(IdempotencyStore.Outcome.Execute.class);
+        store.complete(((IdempotencyStore.Outcome.Execute) first).claim(), CREATED);
+
+        IdempotencyStore.Outcome retry = store.begin(key, FINGERPRINT);
+        assertThat(retry).isInstanceOf(IdempotencyStore.Outcome.Replay.class);
+        assertThat(((IdempotencyStore.Outcome.Replay) retry).response().body()).isEqualTo(CREATED.body());
+    }
+
+    @Test
+    void differentRequestWithTheSameKeyIsAMismatch() {
+        IdempotencyStore.Key key = newKey();
+        assertThat(store.begin(key, FINGERPRINT)).isInstanceOf(IdempotencyStore.Outcome.Execute.class);
+
+        assertThat(store.begin(key, OTHER_FINGERPRINT)).isInstanceOf(IdempotencyStore.Outcome.Mismatch.class);
+    }
+
+    @Test
+    void failedRequestReleasesItsKey() {
+        IdempotencyStore.Key key = newKey();
+        IdempotencyStore.Outcome first = store.begin(key, FINGERPRINT);
+        store.abandon(((IdempotencyStore.Outcome.Execute) first).claim());
+
+        assertThat(store.begin(key, FINGERPRINT)).isInstanceOf(IdempotencyStore.Outcome.Execute.class);
+    }
+
+    @Test
+    void slowRequestWithALiveLeaseIsNotTakenOver() {
+        IdempotencyStore.Key key = newKey();
+        UUID owner = UUID.randomUUID();
+        // Started long ago, but its node is still renewing the lease
+        pendingElsewhere(key, FINGERPRINT, owner, "now() - interval '1 hour'", "now() + interval '1 minute'");
+
+        assertThat(store.begin(key, FINGERPRINT)).isInstanceOf(IdempotencyStore.Outcome.Busy.class);
+        assertThat(ownerOf(key)).isEqualTo(owner);
+    }
+
+    @Test
+    void expiredLeaseIsTakenOverByTheSameRequest() {
+        IdempotencyStore.Key key = newKey();
+        UUID owner = UUID.randomUUID();
+        pendingElsewhere(key, FINGERPRINT, owner, "now() - interval '1 minute'", "now() - interval '1 second'");
+
+        IdempotencyStore.Outcome outcome = store.begin(key, FINGERPRINT);
+        assertThat(outcome).isInstanceOf(IdempotencyStore.Outcome.Execute.class);
+        assertThat(ownerOf(key)).isNotEqualTo(owner);
+        store.complete(((IdempotencyStore.Outcome.Execute) outcome).claim(), CREATED);
+        assertThat(jdbc.queryForObject("select status from idempotency_keys where user_id = ? and idempotency_key = ?",
+                Integer.class, key.userId(), key.idempotencyKey())).isEqualTo(201);
+    }
+
+    @Test
+    void expiredLeaseIsNotTakenOverByADifferentRequest() {
+        IdempotencyStore.Key key = newKey();
+        UUID owner = UUID.randomUUID();
+        pendingElsewhere(key, FINGERPRINT, owner, "now() - interval '1 minute'", "now() - interval '1 second'");
+
+        assertThat(store.begin(key, OTHER_FINGERPRINT)).isInstanceOf(IdempotencyStore.Outcome.Mismatch.class);
+        assertThat(ownerOf(key)).isEqualTo(owner);
+        assertThat(jdbc.queryForObject("select fingerprint from idempotency_keys where user_id = ? and idempotency_key = ?",
+                String.class, key.userId(), key.idempotencyKey())).isEqualTo(FINGERPRINT);
+    }
+
+    @Test
+    void runningRequestKeepsRenewingItsLease() throws Exception {
+        IdempotencyStore.Key key = newKey();
+        IdempotencyStore.Outcome outcome = store.begin(key, FINGERPRINT);
+        assertThat(outcome).isInstanceOf(IdempotencyStore.Outcome.Execute.class);
+
+        // Well past the one-second lease it was claimed with
+        Thread.sleep(2_000);
+        assertThat(jdbc.queryForObject("select locked_until > now() from idempotency_keys"
+                + " where user_id = ? and idempotency_key = ?", Boolean.class, key.userId(), key.idempotencyKey()))
+                .isTrue();
+        store.complete(((IdempotencyStore.Outcome.Execute) outcome).claim(), CREATED);
+    }
+
+    private static IdempotencyStore.Key newKey() {
+        return new IdempotencyStore.Key(1, "test-" + UUID.randomUUID());
+    }
+
+    private void pendingElsewhere(IdempotencyStore.Key key, String fingerprint, UUID owner,
+                                  String createdAt, String lockedUntil) {
+        jdbc.update("insert into idempotency_keys"
+                        + " (user_id, idempotency_key, fingerprint, created_at, expires_at, owner, locked_until)"
+                        + " values (?, ?, ?, " + createdAt + ", now() + interval '1 day', ?, " + lockedUntil + ")",
+                key.userId(), key.idempotencyKey(), fingerprint, owner);
+    }
+
+    private UUID ownerOf(IdempotencyStore.Key key) {
+        return jdbc.queryForObject("select owner from idempotency_keys where user_id = ? and idempotency_key = ?",
+                UUID.class, key.userId(), key.idempotencyKey());
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.pmapp.limit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AimdLimiterTest {
+    private static final long TARGET = 100;
+
+    @Test
+    void refusesBeyondTheLimit() {
+        AimdLimiter limiter = new AimdLimiter(2, 1, 10, TARGET, 0.5);
+
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+
+        limiter.release(0, 10);
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void growsOnlyWhileTheLimitIsUsed() {
+        AimdLimiter limiter = new AimdLimiter(4, 1, 10, TARGET, 0.5);
+
+        // One in flight out of four: not using the limit
+        limiter.tryAcquire();
+        limiter.release(0, 10);
+        assertThat(limiter.getLimit()).isEqualTo(4);
+
+        for (int i = 0; i < 2; i++) {
+            limiter.tryAcquire();
+        }
+        limiter.release(0, 10);
+        assertThat(limiter.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void growthStopsAtTheMaximum() {
+        AimdLimiter limiter = new AimdLimiter(3, 1, 3, TARGET, 0.5);
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire();
+        }
+
+        limiter.release(0, 10);
+        assertThat(limiter.getLimit()).isEqualTo(3);
+    }
+
+    @Test
+    void slowRequestsInFlightTogetherShrinkTheLimitOnce() {
+        AimdLimiter limiter = new AimdLimiter(100, 1, 100, TARGET, 0.5);
+        for (int i = 0; i < 50; i++) {
+            limiter.tryAcquire();
+        }
+
+        // All 50 started together and all were slow
+        for (int i = 0; i < 50; i++) {
+            limiter.release(1_000, 2_000 + i);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(50);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void slowRequestStartedAfterTheDecreaseShrinksItAgain() {
+        AimdLimiter limiter = new AimdLimiter(100, 1, 100, TARGET, 0.5);
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+        limiter.release(1_000, 2_000);
+
+        limiter.release(2_001, 3_000);
+
+        assertThat(limiter.getLimit()).isEqualTo(25);
+    }
+
+    @Test
+    void droppedRequestsCountAsSlow() {
+        AimdLimiter limiter = new AimdLimiter(10, 1, 100, TARGET, 0.5);
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+
+        limiter.releaseDropped(0, 10);
+        limiter.releaseDropped(0, 20);
+
+        assertThat(limiter.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void shrinkingStopsAtTheMinimum() {
+        AimdLimiter limiter = new AimdLimiter(4, 3, 10, TARGET, 0.5);
+        limiter.tryAcquire();
+
+        limiter.releaseDropped(0, 10);
+
+        assertThat(limiter.getLimit()).isEqualTo(3);
+    }
+
+    @Test
+    void initialLimitIsClampedAndBoundsAreChecked() {
+        assertThat(new AimdLimiter(500, 1, 10, TARGET, 0.5).getLimit()).isEqualTo(10);
+        assertThat(new AimdLimiter(0, 2, 10, TARGET, 0.5).getLimit()).isEqualTo(2);
+        assertThatThrownBy(() -> new AimdLimiter(1, 0, 10, TARGET, 0.5))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AimdLimiter(1, 5, 4, TARGET, 0.5))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AimdLimiter(1, 1, 4, TARGET, 1.0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
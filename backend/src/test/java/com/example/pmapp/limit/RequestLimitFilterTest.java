@@ -0,0 +1,125 @@
+package com.example.pmapp.limit;
+
+import com.example.pmapp.model.Role;
+import com.example.pmapp.model.User;
+import com.example.pmapp.security.AuthenticatedUser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Parsing of {@code app.rate-limit.routes} and which bucket a request
+ * lands in.  Every configured route allows a burst of one here, so the
+ * second request to a route is the first one refused.
+ */
+class RequestLimitFilterTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void signIn() {
+        AuthenticatedUser user = AuthenticatedUser.from(new User(7, "alice", "{noop}unused", Role.USER));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    @AfterEach
+    void signOut() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void methodRestrictsTheRoute() throws Exception {
+        RequestLimitFilter filter = filter("POST /api/projects=1:1");
+
+        assertThat(status(filter, "POST", "/api/projects")).isEqualTo(200);
+        assertThat(status(filter, "post", "/api/projects")).isEqualTo(429);
+        // Other methods use the default bucket
+        assertThat(status(filter, "GET", "/api/projects")).isEqualTo(200);
+        assertThat(status(filter, "GET", "/api/projects")).isEqualTo(200);
+    }
+
+    @Test
+    void routeWithoutMethodMatchesEveryMethodAndPatterns() throws Exception {
+        RequestLimitFilter filter = filter("/api/projects/{id}/**=1:1");
+
+        assertThat(status(filter, "GET", "/api/projects/3/materials")).isEqualTo(200);
+        assertThat(status(filter, "PUT", "/api/projects/4")).isEqualTo(429);
+        assertThat(status(filter, "GET", "/api/projects")).isEqualTo(200);
+    }
+
+    @Test
+    void firstMatchingRouteWins() throws Exception {
+        RequestLimitFilter filter = filter("GET /api/projects/search=1:1", "/api/projects/**=100:100");
+
+        assertThat(status(filter, "GET", "/api/projects/search")).isEqualTo(200);
+        assertThat(status(filter, "GET", "/api/projects/search")).isEqualTo(429);
+        assertThat(status(filter, "GET", "/api/projects/1")).isEqualTo(200);
+    }
+
+    @Test
+    void burstDefaultsToTheRate() throws Exception {
+        RequestLimitFilter filter = filter("/api/materials=2");
+
+        assertThat(status(filter, "GET", "/api/materials")).isEqualTo(200);
+        assertThat(status(filter, "GET", "/api/materials")).isEqualTo(200);
+        assertThat(status(filter, "GET", "/api/materials")).isEqualTo(429);
+    }
+
+    @Test
+    void refusalCarriesRetryAfterAndIsCountedPerRoute() throws Exception {
+        RequestLimitFilter filter = filter("POST /api/projects=0.5:1");
+        status(filter, "POST", "/api/projects");
+
+        MockHttpServletResponse response = perform(filter, "POST", "/api/projects");
+
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(registry.counter("pmapp.requests.rate.limited", "route", "POST /api/projects").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void blankEntriesAreIgnored() throws Exception {
+        RequestLimitFilter filter = filter(" ", "/api/materials=1:1");
+
+        assertThat(status(filter, "GET", "/api/materials")).isEqualTo(200);
+        assertThat(status(filter, "GET", "/api/materials")).isEqualTo(429);
+    }
+
+    @Test
+    void malformedRoutesAreRejected() {
+        assertThatThrownBy(() -> filter("/api/projects")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> filter("/api/projects=fast")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> filter("/api/projects=1:many")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private RequestLimitFilter filter(String... routes) {
+        // Load shedding off: only the per-user buckets decide
+        return new RequestLimitFilter(registry, true, List.of(routes), 100, 100, 1000,
+                false, 100, 10, 200, Duration.ofMillis(500), List.of(), Duration.ofSeconds(1));
+    }
+
+    private int status(RequestLimitFilter filter, String method, String path) throws Exception {
+        return perform(filter, method, path).getStatus();
+    }
+
+    private static MockHttpServletResponse perform(RequestLimitFilter filter, String method, String path)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
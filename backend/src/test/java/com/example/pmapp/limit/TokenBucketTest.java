@@ -0,0 +1,67 @@
+package com.example.pmapp.limit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class TokenBucketTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void burstIsAllowedThenRefused() {
+        TokenBucket bucket = new TokenBucket(1, 3, 0);
+
+        assertThat(bucket.tryTake(0)).isZero();
+        assertThat(bucket.tryTake(0)).isZero();
+        assertThat(bucket.tryTake(0)).isZero();
+        assertThat(bucket.tryTake(0)).isCloseTo(SECOND, within(1L));
+    }
+
+    @Test
+    void refusalReportsTimeUntilTheNextToken() {
+        TokenBucket bucket = new TokenBucket(2, 1, 0);
+        bucket.tryTake(0);
+
+        assertThat(bucket.tryTake(SECOND / 4)).isCloseTo(SECOND / 4, within(1L));
+        assertThat(bucket.tryTake(SECOND / 2 + 10)).isZero();
+    }
+
+    @Test
+    void refillStopsAtCapacity() {
+        TokenBucket bucket = new TokenBucket(10, 2, 0);
+        bucket.tryTake(0);
+        bucket.tryTake(0);
+
+        // An hour idle still only refills the burst
+        long later = 3600 * SECOND;
+        assertThat(bucket.tryTake(later)).isZero();
+        assertThat(bucket.tryTake(later)).isZero();
+        assertThat(bucket.tryTake(later)).isPositive();
+    }
+
+    @Test
+    void isFullOnlyOnceCompletelyRefilled() {
+        TokenBucket bucket = new TokenBucket(1, 2, 0);
+        assertThat(bucket.isFull(0)).isTrue();
+
+        bucket.tryTake(0);
+        assertThat(bucket.isFull(SECOND / 2)).isFalse();
+        assertThat(bucket.isFull(SECOND + 10)).isTrue();
+    }
+
+    @Test
+    void clockGoingBackwardsAddsNoTokens() {
+        TokenBucket bucket = new TokenBucket(1, 1, 10 * SECOND);
+        bucket.tryTake(10 * SECOND);
+
+        assertThat(bucket.tryTake(5 * SECOND)).isCloseTo(SECOND, within(1L));
+    }
+
+    @Test
+    void invalidRateOrCapacityIsRejected() {
+        assertThatThrownBy(() -> new TokenBucket(0, 1, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucket(1, 0.5, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
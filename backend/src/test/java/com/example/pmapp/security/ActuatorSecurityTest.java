@@ -0,0 +1,50 @@
+package com.example.pmapp.security;
+
+import com.example.pmapp.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@TestPropertySource(properties = "app.metrics.scrape-addresses=10.0.0.0/24")
+class ActuatorSecurityTest extends PostgresIntegrationTest {
+    @Autowired
+    MockMvc mvc;
+
+    @Test
+    void healthIsPublic() throws Exception {
+        mvc.perform(get("/actuator/health").with(from("203.0.113.7"))).andExpect(status().isOk());
+    }
+
+    @Test
+    void scraperMayReadPrometheus() throws Exception {
+        mvc.perform(get("/actuator/prometheus").with(from("10.0.0.42"))).andExpect(status().isOk());
+    }
+
+    @Test
+    void prometheusIsClosedToEveryoneElse() throws Exception {
+        mvc.perform(get("/actuator/prometheus").with(from("203.0.113.7"))).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void otherActuatorEndpointsStayAdminOnly() throws Exception {
+        mvc.perform(get("/actuator/metrics").with(from("10.0.0.42"))).andExpect(status().isUnauthorized());
+    }
+
+    private static RequestPostProcessor from(String address) {
+        return request -> {
+            request.setRemoteAddr(address);
+            return request;
+        };
+    }
+}
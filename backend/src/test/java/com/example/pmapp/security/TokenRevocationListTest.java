@@ -0,0 +1,81 @@
+package com.example.pmapp.security;
+
+import com.example.pmapp.cache.CacheInvalidationEvent;
+import com.example.pmapp.cache.CacheRegion;
+import com.example.pmapp.model.TokenRevocation;
+import com.example.pmapp.repository.TokenRevocationRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenRevocationListTest {
+    private static final int USER = 1;
+    private static final int OTHER_USER = 2;
+
+    private final TokenRevocationRepository repository = mock(TokenRevocationRepository.class);
+    private final TokenRevocationList list = new TokenRevocationList(repository, 1_000, Duration.ofMinutes(1));
+    private long nextId = 1;
+
+    @Test
+    void cutOffRevokesTokensIssuedEarlierInTheSameSecond() {
+        Instant second = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        apply(new TokenRevocation(null, USER, second.plusMillis(600), second.plus(Duration.ofHours(1))));
+
+        // Issued at .200, so its "iat" is the whole second
+        assertThat(list.isRevoked(null, USER, second.toEpochMilli())).isTrue();
+        assertThat(list.isRevoked(null, USER, second.minusSeconds(5).toEpochMilli())).isTrue();
+    }
+
+    @Test
+    void tokensIssuedAfterACutOffStayValid() {
+        Instant revokedAt = Instant.now();
+        apply(new TokenRevocation(null, USER, revokedAt, revokedAt.plus(Duration.ofHours(1))));
+
+        Instant issuedAt = list.issuedAtFor(USER);
+        assertThat(issuedAt).isAfter(revokedAt);
+        assertThat(issuedAt.getNano()).isZero();
+        assertThat(list.isRevoked(null, USER, issuedAt.toEpochMilli())).isFalse();
+    }
+
+    @Test
+    void latestCutOffWins() {
+        Instant now = Instant.now();
+        Instant later = now.plusSeconds(3);
+        apply(new TokenRevocation(null, USER, later, later.plus(Duration.ofHours(1))));
+        apply(new TokenRevocation(null, USER, now, now.plus(Duration.ofHours(1))));
+
+        assertThat(list.isRevoked(null, USER, later.truncatedTo(ChronoUnit.SECONDS).toEpochMilli())).isTrue();
+        assertThat(list.issuedAtFor(USER)).isAfter(later);
+    }
+
+    @Test
+    void cutOffOnlyAppliesToItsUser() {
+        Instant revokedAt = Instant.now();
+        apply(new TokenRevocation(null, USER, revokedAt, revokedAt.plus(Duration.ofHours(1))));
+
+        assertThat(list.isRevoked(null, OTHER_USER, revokedAt.minusSeconds(5).toEpochMilli())).isFalse();
+        assertThat(list.issuedAtFor(OTHER_USER)).isBeforeOrEqualTo(Instant.now());
+    }
+
+    @Test
+    void revokedTokenIdIsRevokedWhateverItsIssueTime() {
+        Instant now = Instant.now();
+        apply(new TokenRevocation("revoked-jti", USER, now, now.plus(Duration.ofHours(1))));
+
+        assertThat(list.isRevoked("revoked-jti", USER, now.plusSeconds(60).toEpochMilli())).isTrue();
+        assertThat(list.isRevoked("other-jti", USER, now.toEpochMilli())).isFalse();
+    }
+
+    private void apply(TokenRevocation revocation) {
+        long id = nextId++;
+        when(repository.findById(id)).thenReturn(Optional.of(revocation));
+        list.onInvalidation(new CacheInvalidationEvent(CacheRegion.TOKEN_REVOCATIONS, Long.toString(id)));
+    }
+}
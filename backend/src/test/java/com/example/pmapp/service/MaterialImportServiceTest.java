@@ -0,0 +1,104 @@
+package com.example.pmapp.service;
+
+import com.example.pmapp.PostgresIntegrationTest;
+import com.example.pmapp.dto.MaterialImportResult;
+import com.example.pmapp.model.Role;
+import com.example.pmapp.model.User;
+import com.example.pmapp.repository.UserRepository;
+import com.example.pmapp.security.AuthenticatedUser;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.io.StringReader;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+class MaterialImportServiceTest extends PostgresIntegrationTest {
+    @Autowired
+    MaterialImportService importService;
+    @Autowired
+    UserRepository users;
+    @Autowired
+    JdbcTemplate jdbc;
+    @Autowired
+    DataSource dataSource;
+
+    @Test
+    void repeatsWithinTheFileAreRejectedAfterTheFirstLine() throws Exception {
+        String p = UUID.randomUUID().toString().substring(0, 8);
+        String csv = "name,marketId,seller\n"
+                + "Brick " + p + ",A" + p + ",Acme\n"
+                + "Tile " + p + ",A" + p + ",Acme\n"
+                // Tile's line was rejected, so its name is still free here
+                + "Tile " + p + ",B" + p + ",Acme\n"
+                + "Brick " + p + ",C" + p + ",Acme\n";
+
+        MaterialImportResult result = importService.importCsv(admin(), new StringReader(csv));
+
+        assertThat(result.received()).isEqualTo(4);
+        assertThat(result.inserted()).isEqualTo(2);
+        assertThat(result.rejections())
+                .extracting(MaterialImportResult.Rejection::line, MaterialImportResult.Rejection::reason)
+                .containsExactly(tuple(3L, "Duplicate marketId in file"), tuple(5L, "Duplicate name in file"));
+        assertThat(jdbc.queryForList("select name from materials where market_id in (?, ?) order by market_id",
+                String.class, "A" + p, "B" + p)).containsExactly("Brick " + p, "Tile " + p);
+    }
+
+    @Test
+    void schemaScriptMergesDuplicateMarketIdsBeforeIndexingThem() {
+        String p = UUID.randomUUID().toString().substring(0, 8);
+        jdbc.execute("drop index uq_materials_market_id");
+        long older = material("Old " + p, "M" + p);
+        long newer = material("New " + p, "M" + p);
+        long other = material("Other " + p, "O" + p);
+        User owner = users.save(new User(null, "import-" + p, "{noop}unused", Role.USER));
+        int both = project(owner);
+        int onlyOld = project(owner);
+        link(both, older, 2);
+        int kept = link(both, newer, 3);
+        int moved = link(onlyOld, older, 5);
+        int untouched = link(onlyOld, other, 7);
+
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+
+        assertThat(jdbc.queryForObject("select count(*) from materials where market_id = ?", Long.class, "M" + p))
+                .isEqualTo(1);
+        assertThat(jdbc.queryForList("select id || ':' || material_id || ':' || amount from project_materials"
+                        + " where project_id in (?, ?) order by id", String.class, both, onlyOld))
+                .containsExactly(kept + ":" + newer + ":5", moved + ":" + newer + ":5",
+                        untouched + ":" + other + ":7");
+        assertThat(jdbc.queryForObject("select count(*) from sync_tombstones where kind = 'MATERIAL' and entity_id = ?",
+                Long.class, older)).isEqualTo(1);
+        assertThat(jdbc.queryForObject("select count(*) from pg_indexes where indexname = 'uq_materials_market_id'",
+                Long.class)).isEqualTo(1);
+    }
+
+    private AuthenticatedUser admin() {
+        return AuthenticatedUser.from(users.save(
+                new User(null, "import-admin-" + UUID.randomUUID(), "{noop}unused", Role.ADMIN)));
+    }
+
+    private long material(String name, String marketId) {
+        return jdbc.queryForObject("insert into materials (name, market_id, seller) values (?, ?, 'Acme') returning id",
+                Long.class, name, marketId);
+    }
+
+    private int project(User owner) {
+        return jdbc.queryForObject("insert into projects (user_id, name, description, created_at)"
+                + " values (?, 'Project', 'Walls', localtimestamp) returning id", Integer.class, owner.getId());
+    }
+
+    private int link(int projectId, long materialId, double amount) {
+        return jdbc.queryForObject("insert into project_materials (id, project_id, material_id, amount)"
+                        + " values (nextval('project_materials_seq'), ?, ?, ?) returning id",
+                Integer.class, projectId, materialId, amount);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.pmapp.service;
+
+import com.example.pmapp.PostgresIntegrationTest;
+import com.example.pmapp.dto.ProjectMaterialDeltaRequest;
+import com.example.pmapp.dto.ProjectMaterialRequest;
+import com.example.pmapp.dto.ProjectMaterialResponse;
+import com.example.pmapp.model.Material;
+import com.example.pmapp.model.Project;
+import com.example.pmapp.model.Role;
+import com.example.pmapp.model.User;
+import com.example.pmapp.repository.MaterialRepository;
+import com.example.pmapp.repository.ProjectRepository;
+import com.example.pmapp.repository.UserRepository;
+import com.example.pmapp.security.AuthenticatedUser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The single-statement upserts of {@link ProjectMaterialService}: which
+ * error a missing project or material produces, and that negative deltas
+ * never create links.
+ */
+@SpringBootTest
+class ProjectMaterialServiceTest extends PostgresIntegrationTest {
+    @Autowired
+    ProjectMaterialService service;
+    @Autowired
+    UserRepository users;
+    @Autowired
+    ProjectRepository projects;
+    @Autowired
+    MaterialRepository materials;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    AuthenticatedUser caller;
+    Project project;
+    Material material;
+
+    @BeforeEach
+    void seed() {
+        User user = users.save(new User(null, "materials-" + UUID.randomUUID(), "{noop}unused", Role.USER));
+        caller = AuthenticatedUser.from(user);
+        project = projects.save(new Project(null, user, "Project", "Walls", LocalDateTime.now(), null, null));
+        Material m = new Material();
+        m.setName("Brick " + UUID.randomUUID());
+        m.setMarketId("mk-" + UUID.randomUUID());
+        m.setSeller("Builders Merchant");
+        material = materials.save(m);
+    }
+
+    @Test
+    void unknownMaterialIsReportedAsSuch() {
+        assertThatThrownBy(() -> service.upsert(caller, project.getId(), set(Long.MAX_VALUE, 1)))
+                .hasMessage("Material not found");
+        assertThatThrownBy(() -> service.addAmount(caller, project.getId(), add(Long.MAX_VALUE, 1)))
+                .hasMessage("Material not found");
+    }
+
+    @Test
+    void projectDeletedBehindTheOwnerCacheIsReportedAsSuch() {
+        // Caches the owner, then the project goes away without an invalidation
+        service.list(caller, project.getId());
+        jdbcTemplate.update("delete from projects where id = ?", project.getId());
+
+        assertThatThrownBy(() -> service.upsert(caller, project.getId(), set(material.getId(), 1)))
+                .hasMessage("Project not found");
+        assertThatThrownBy(() -> service.addAmount(caller, project.getId(), add(material.getId(), 1)))
+                .hasMessage("Project not found");
+    }
+
+    @Test
+    void nonPositiveDeltaDoesNotCreateALink() {
+        assertThatThrownBy(() -> service.addAmount(caller, project.getId(), add(material.getId(), -2)))
+                .hasMessage("Project material not found");
+        assertThatThrownBy(() -> service.addAmount(caller, project.getId(), add(material.getId(), 0)))
+                .hasMessage("Project material not found");
+
+        assertThat(service.list(caller, project.getId())).isEmpty();
+    }
+
+    @Test
+    void deltasCreateThenAdjustTheLink() {
+        ProjectMaterialResponse created = service.addAmount(caller, project.getId(), add(material.getId(), 3));
+        assertThat(created.getAmount()).isEqualTo(3);
+
+        ProjectMaterialResponse lowered = service.addAmount(caller, project.getId(), add(material.getId(), -5));
+        assertThat(lowered.getId()).isEqualTo(created.getId());
+        assertThat(lowered.getAmount()).isZero();
+    }
+
+    private static ProjectMaterialRequest set(Long materialId, double amount) {
+        ProjectMaterialRequest req = new ProjectMaterialRequest();
+        req.setMaterialId(materialId);
+        req.setAmount(amount);
+        return req;
+    }
+
+    private static ProjectMaterialDeltaRequest add(Long materialId, double delta) {
+        ProjectMaterialDeltaRequest req = new ProjectMaterialDeltaRequest();
+        req.setMaterialId(materialId);
+        req.setDelta(delta);
+        return req;
+    }
+}
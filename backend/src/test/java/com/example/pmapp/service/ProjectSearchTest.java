@@ -0,0 +1,132 @@
+package com.example.pmapp.service;
+
+import com.example.pmapp.PostgresIntegrationTest;
+import com.example.pmapp.controller.ProjectController;
+import com.example.pmapp.model.Project;
+import com.example.pmapp.model.Role;
+import com.example.pmapp.model.User;
+import com.example.pmapp.repository.ProjectRepository;
+import com.example.pmapp.repository.UserRepository;
+import com.example.pmapp.security.AuthenticatedUser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Search pages rank one fixed set of candidates, the newest
+ * {@code app.projects.search.max-candidates} matches, and say when older
+ * matches were left out.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = "app.projects.search.max-candidates=5")
+class ProjectSearchTest extends PostgresIntegrationTest {
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired
+    UserRepository users;
+    @Autowired
+    ProjectRepository projects;
+    @Autowired
+    JwtService jwtService;
+
+    User user;
+    String token;
+    List<Integer> ids = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        user = users.save(new User(null, "search-" + UUID.randomUUID(), "{noop}unused", Role.USER));
+        token = jwtService.generateToken(AuthenticatedUser.from(user));
+        for (int i = 0; i < 8; i++) {
+            // Ranks differ, and not in id order
+            ids.add(save("zephyr " + "filler ".repeat((i * 3) % 8)));
+        }
+    }
+
+    @Test
+    void pagesCoverTheNewestCandidatesAndReportTruncation() throws Exception {
+        List<Integer> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            MockHttpServletResponse page = search(cursor);
+            assertThat(page.getHeader(ProjectController.SEARCH_TRUNCATED_HEADER)).isEqualTo("true");
+            JSON.readTree(page.getContentAsString()).forEach(p -> seen.add(p.path("id").asInt()));
+            cursor = page.getHeader(ProjectController.NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+
+        assertThat(seen).containsExactlyInAnyOrderElementsOf(ids.subList(3, 8));
+    }
+
+    @Test
+    void laterPagesIgnoreProjectsCreatedAfterTheFirst() throws Exception {
+        MockHttpServletResponse first = search(null);
+        List<Integer> seen = new ArrayList<>();
+        JSON.readTree(first.getContentAsString()).forEach(p -> seen.add(p.path("id").asInt()));
+
+        // Would outrank everything and push the oldest candidate out of the set
+        save("zephyr");
+        String cursor = first.getHeader(ProjectController.NEXT_CURSOR_HEADER);
+        while (cursor != null) {
+            MockHttpServletResponse page = search(cursor);
+            JSON.readTree(page.getContentAsString()).forEach(p -> seen.add(p.path("id").asInt()));
+            cursor = page.getHeader(ProjectController.NEXT_CURSOR_HEADER);
+        }
+
+        assertThat(seen).containsExactlyInAnyOrderElementsOf(ids.subList(3, 8));
+    }
+
+    @Test
+    void fewMatchesAreNotTruncated() throws Exception {
+        save("quasar");
+
+        MockHttpServletResponse page = mvc.perform(request("quasar", null))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+
+        JsonNode items = JSON.readTree(page.getContentAsString());
+        assertThat(items).hasSize(1);
+        assertThat(page.getHeader(ProjectController.SEARCH_TRUNCATED_HEADER)).isNull();
+    }
+
+    private Integer save(String description) {
+        return projects.save(new Project(null, user, "Project", description, LocalDateTime.now(),
+                null, null)).getId();
+    }
+
+    private MockHttpServletResponse search(String cursor) throws Exception {
+        return mvc.perform(request("zephyr", cursor))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+    }
+
+    private MockHttpServletRequestBuilder request(String q, String cursor) {
+        MockHttpServletRequestBuilder request = get("/api/projects/search")
+                .header("Authorization", "Bearer " + token)
+                .param("q", q)
+                .param("limit", "2");
+        if (cursor != null) {
+            request.param("cursor", cursor);
+        }
+        return request;
+    }
+}
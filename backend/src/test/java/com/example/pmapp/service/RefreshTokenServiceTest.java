@@ -0,0 +1,96 @@
+package com.example.pmapp.service;
+
+import com.example.pmapp.PostgresIntegrationTest;
+import com.example.pmapp.model.Role;
+import com.example.pmapp.model.User;
+import com.example.pmapp.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class RefreshTokenServiceTest extends PostgresIntegrationTest {
+    @Autowired
+    RefreshTokenService refreshTokens;
+    @Autowired
+    UserRepository users;
+    @Autowired
+    JdbcTemplate jdbc;
+
+    User user;
+
+    @BeforeEach
+    void createUser() {
+        user = users.save(new User(null, "refresh-" + UUID.randomUUID(), "{noop}unused", Role.USER));
+    }
+
+    @Test
+    void rotationIssuesASuccessorForTheSameUser() {
+        String first = refreshTokens.issue(user);
+
+        RefreshTokenService.Rotation rotation = refreshTokens.rotate(first);
+
+        assertThat(rotation).isNotNull();
+        assertThat(rotation.user().getId()).isEqualTo(user.getId());
+        assertThat(rotation.refreshToken()).isNotEqualTo(first);
+        assertThat(refreshTokens.rotate(rotation.refreshToken())).isNotNull();
+    }
+
+    @Test
+    void reuseWithinTheGraceReturnsTheSameSuccessor() {
+        String first = refreshTokens.issue(user);
+        String successor = refreshTokens.rotate(first).refreshToken();
+
+        // A second tab, or a client that lost the first response
+        RefreshTokenService.Rotation retry = refreshTokens.rotate(first);
+
+        assertThat(retry).isNotNull();
+        assertThat(retry.refreshToken()).isEqualTo(successor);
+        assertThat(refreshTokens.rotate(successor)).isNotNull();
+    }
+
+    @Test
+    void reuseAfterTheGraceRevokesTheFamily() {
+        String first = refreshTokens.issue(user);
+        String successor = refreshTokens.rotate(first).refreshToken();
+        jdbc.update("update refresh_tokens set used_at = used_at - interval '1 hour' where token_hash = ?",
+                RefreshTokenService.hash(first));
+
+        assertThat(refreshTokens.rotate(first)).isNull();
+        assertThat(refreshTokens.rotate(successor)).isNull();
+    }
+
+    @Test
+    void reuseAfterTheSuccessorWasUsedRevokesTheFamily() {
+        String first = refreshTokens.issue(user);
+        String successor = refreshTokens.rotate(first).refreshToken();
+        String third = refreshTokens.rotate(successor).refreshToken();
+
+        assertThat(refreshTokens.rotate(first)).isNull();
+        assertThat(refreshTokens.rotate(third)).isNull();
+    }
+
+    @Test
+    void otherLoginsSurviveARevokedFamily() {
+        String stolen = refreshTokens.issue(user);
+        String otherDevice = refreshTokens.issue(user);
+        refreshTokens.rotate(refreshTokens.rotate(stolen).refreshToken());
+        jdbc.update("update refresh_tokens set used_at = used_at - interval '1 hour' where token_hash = ?",
+                RefreshTokenService.hash(stolen));
+
+        assertThat(refreshTokens.rotate(stolen)).isNull();
+        assertThat(refreshTokens.rotate(otherDevice)).isNotNull();
+    }
+
+    @Test
+    void unknownTokenIsRejected() {
+        assertThat(refreshTokens.rotate("not-a-token")).isNull();
+        assertThat(refreshTokens.rotate(" ")).isNull();
+    }
+}
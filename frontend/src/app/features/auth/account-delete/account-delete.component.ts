@@ -138,6 +138,7 @@ export class AccountDeleteComponent {
       // If you have an AuthService.logout(), call it here instead.
       localStorage.removeItem('jwt');
       localStorage.removeItem('token');
+      localStorage.removeItem('refreshToken');
       localStorage.removeItem('roles');
       // keep username cleared after password change
       localStorage.removeItem('username');
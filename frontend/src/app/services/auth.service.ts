@@ -1,22 +1,32 @@
 // src/app/services/auth.service.ts
 import { Injectable } from '@angular/core';
 import { HttpClient } from '@angular/common/http';
-import { Observable, tap } from 'rxjs';
+import { Observable, defer, finalize, from, of, shareReplay, tap } from 'rxjs';
 import { Router } from '@angular/router';
 
-interface AuthResponse { username: string; role: string; token: string; }
+interface AuthResponse { username: string; role: string; token: string; refreshToken?: string; }
 
 /**
  * Service handling user authentication. Tokens are persisted in localStorage
  * and appended to outgoing requests via the JWT interceptor. The service also
  * exposes helper methods to check login state and log the user out.
  *
+ * Access tokens are short-lived. When one runs out, the interceptor calls
+ * refresh(), which trades the single-use refresh token for a new pair
+ * instead of asking for the password again. Tabs share the tokens through
+ * localStorage, so refreshes are serialized across tabs with a Web Lock;
+ * a tab that waited picks up the pair another tab just stored. Without
+ * Web Locks the backend's short reuse grace covers concurrent refreshes.
+ *
  * NOTE: Backend URLs are intentionally hardcoded as requested.
  */
 @Injectable({ providedIn: 'root' })
 export class AuthService {
   // Keep hardcoded URL
   private readonly authBase = 'http://localhost:8080/api/auth';
+  // One refresh at a time: refresh tokens are single use, so parallel calls would revoke the login
+  private refreshing$: Observable<AuthResponse> | null = null;
+  private readonly refreshLock = 'pmapp-auth-refresh';
 
   constructor(private http: HttpClient, private router: Router) {}
 
@@ -33,9 +43,32 @@ export class AuthService {
       .pipe(tap(res => this.persist(res)));
   }
 
+  refresh(): Observable<AuthResponse> {
+    if (!this.refreshing$) {
+      const presented = this.getRefreshToken();
+      this.refreshing$ = this.acrossTabs(() =>
+        // Another tab refreshed while this one waited for the lock: use its pair
+        this.getRefreshToken() !== presented && !this.isAccessTokenExpired()
+          ? of(this.stored())
+          : this.http
+              .post<AuthResponse>(`${this.authBase}/refresh`, { refreshToken: this.getRefreshToken() })
+              .pipe(tap(res => this.persist(res)))
+      ).pipe(
+        finalize(() => (this.refreshing$ = null)),
+        shareReplay(1)
+      );
+    }
+    return this.refreshing$;
+  }
+
   // ---- Auth state ----
   logout(): void {
+    const refreshToken = this.getRefreshToken();
+    if (refreshToken) {
+      this.http.post(`${this.authBase}/logout`, { refreshToken }).subscribe({ error: () => {} });
+    }
     localStorage.removeItem('token');
+    localStorage.removeItem('refreshToken');
     localStorage.removeItem('username');
     localStorage.removeItem('role');
     this.router.navigate(['/login']);
@@ -45,13 +78,31 @@ export class AuthService {
     return localStorage.getItem('token');
   }
 
+  getRefreshToken(): string | null {
+    return localStorage.getItem('refreshToken');
+  }
+
+  /** True when the access token is missing, malformed or past its `exp`. */
+  isAccessTokenExpired(): boolean {
+    const token = this.getToken();
+    if (!token) return true;
+    try {
+      const payload = JSON.parse(atob(token.split('.')[1]));
+      return Number.isFinite(payload?.exp) && payload.exp <= Math.floor(Date.now() / 1000);
+    } catch {
+      return true;
+    }
+  }
+
   /**
    * Robust login check:
+   * - a refresh token alone is enough; the interceptor renews the access token
    * - ensures token exists
    * - verifies JWT structure
    * - checks `exp` and clears storage if expired/invalid
    */
   isLoggedIn(): boolean {
+    if (this.getRefreshToken()) return true;
     const token = this.getToken();
     if (!token) return false;
 
@@ -85,8 +136,35 @@ export class AuthService {
   }
 
   // ---- Helpers ----
+  /** Run `work` while holding a lock shared by every tab of this origin, where the browser has Web Locks. */
+  private acrossTabs<T>(work: () => Observable<T>): Observable<T> {
+    const locks = typeof navigator !== 'undefined' ? navigator.locks : undefined;
+    if (!locks) return defer(work);
+    return defer(() =>
+      from(
+        locks.request(
+          this.refreshLock,
+          () => new Promise<T>((resolve, reject) => {
+            let last: T;
+            work().subscribe({ next: v => (last = v), error: reject, complete: () => resolve(last) });
+          })
+        )
+      )
+    );
+  }
+
+  private stored(): AuthResponse {
+    return {
+      username: localStorage.getItem('username') ?? '',
+      role: localStorage.getItem('role') ?? '',
+      token: localStorage.getItem('token') ?? '',
+      refreshToken: localStorage.getItem('refreshToken') ?? undefined
+    };
+  }
+
   private persist(res: AuthResponse) {
     localStorage.setItem('token', res.token);
+    if (res.refreshToken) localStorage.setItem('refreshToken', res.refreshToken);
     localStorage.setItem('username', res.username);
     localStorage.setItem('role', res.role);
   }
@@ -1,14 +1,42 @@
-import { HttpInterceptorFn } from '@angular/common/http';
+import { HttpErrorResponse, HttpInterceptorFn, HttpRequest } from '@angular/common/http';
+import { inject } from '@angular/core';
+import { catchError, switchMap, throwError } from 'rxjs';
+import { AuthService } from './auth.service';
 
 /**
  * Interceptor that attaches the JWT bearer token to outgoing HTTP
  * requests.  Tokens are retrieved from localStorage.  If no token is
  * available the request proceeds unmodified.
+ *
+ * An expired access token is renewed through the refresh token before the
+ * request is sent, and a request rejected with 401 is retried once after
+ * a refresh.  If the refresh itself fails the user is logged out.
  */
 export const jwtInterceptor: HttpInterceptorFn = (req, next) => {
-  const token = localStorage.getItem('token');
-  if (token) {
-    return next(req.clone({ setHeaders: { Authorization: `Bearer ${token}` } }));
+  const auth = inject(AuthService);
+  const withToken = (r: HttpRequest<unknown>, token: string | null) =>
+    token ? r.clone({ setHeaders: { Authorization: `Bearer ${token}` } }) : r;
+
+  // Auth endpoints carry credentials in the body and must never trigger a refresh
+  if (req.url.includes('/auth/') || !auth.getRefreshToken()) {
+    return next(withToken(req, auth.getToken()));
+  }
+
+  const refreshed = () =>
+    auth.refresh().pipe(
+      catchError(err => {
+        auth.logout();
+        return throwError(() => err);
+      }),
+      switchMap(res => next(withToken(req, res.token)))
+    );
+
+  if (auth.isAccessTokenExpired()) {
+    return refreshed();
   }
-  return next(req);
-};
\ No newline at end of file
+  return next(withToken(req, auth.getToken())).pipe(
+    catchError(err =>
+      err instanceof HttpErrorResponse && err.status === 401 ? refreshed() : throwError(() => err)
+    )
+  );
+};
@@ -1,6 +1,6 @@
 import { Injectable } from '@angular/core';
-import { HttpClient } from '@angular/common/http';
-import { Observable } from 'rxjs';
+import { HttpClient, HttpParams, HttpResponse } from '@angular/common/http';
+import { EMPTY, Observable, expand, reduce } from 'rxjs';
 
 export interface Project {
   id: number;
@@ -21,8 +21,23 @@ export interface Project {
 export class ProjectService {
   private readonly base = 'http://localhost:8080/api/projects'; 
   constructor(private http: HttpClient) {}
+  /**
+   * All projects visible to the caller, newest first.  The backend
+   * returns one page at a time, so this follows the X-Next-Cursor
+   * header until the last page and emits the concatenated list once.
+   */
   list(): Observable<Project[]> {
-    return this.http.get<Project[]>(this.base);
+    return this.page(null).pipe(
+      expand(res => {
+        const next = res.headers.get('X-Next-Cursor');
+        return next ? this.page(next) : EMPTY;
+      }),
+      reduce((all, res) => all.concat(res.body ?? []), [] as Project[])
+    );
+  }
+  private page(cursor: string | null): Observable<HttpResponse<Project[]>> {
+    const params = cursor ? new HttpParams().set('cursor', cursor) : undefined;
+    return this.http.get<Project[]>(this.base, { params, observe: 'response' });
   }
   create(data: Omit<Project, 'id' | 'userId' | 'createdAt'> & { userId?: number }): Observable<Project> {
     // The backend ignores userId and derives from token; we include a